@@ -0,0 +1,49 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// PasswordEncryptionService.authenticate at the production iteration count, for the right and
+// the wrong password (both must cost the same), and the async path through the hashing pool.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+    private final String password = "Secur3P@ssword";
+    private byte[] salt;
+    private byte[] stored;
+
+    @Setup
+    public void setUp() throws Exception {
+        salt = PasswordEncryptionService.generateSalt();
+        stored = PasswordEncryptionService.getEncryptedPassword(password, salt);
+    }
+
+    @Benchmark
+    public boolean authenticate() throws Exception {
+        return PasswordEncryptionService.authenticate(password, stored, salt);
+    }
+
+    @Benchmark
+    public boolean authenticateWrongPassword() throws Exception {
+        return PasswordEncryptionService.authenticate("Wr0ngP@ssword", stored, salt);
+    }
+
+    @Benchmark
+    public boolean authenticateAsync() {
+        return PasswordEncryptionService.authenticateAsync(password, stored, salt).join();
+    }
+}
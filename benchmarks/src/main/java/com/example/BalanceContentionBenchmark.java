@@ -0,0 +1,94 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Many threads posting to one hot account: the original SELECT ... FOR UPDATE / compute / UPDATE
+// sequence versus TransactionEngine's conditional UPDATE. Needs a MySQL instance with the
+// customers table; override the connection with -Dbank.url, -Dbank.user and -Dbank.password.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class BalanceContentionBenchmark {
+    private static final String HOT_ACCOUNT = "HOT00001";
+    private static final long AMOUNT = 1;
+
+    private ConnectionPool pool;
+    private TransactionEngine engine;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        pool = new ConnectionPool(System.getProperty("bank.url", "jdbc:mysql://localhost:3306/bank_system"),
+                System.getProperty("bank.user", "root"), System.getProperty("bank.password", "password"), 32);
+        // The journal syncs before every commit, as in the application
+        engine = new TransactionEngine(pool, new BalanceCache(1024),
+                new TransactionJournal(Files.createTempDirectory("journal")));
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO customers (accountNo, password, salt, balance) VALUES (?, ?, ?, ?) "
+                 + "ON DUPLICATE KEY UPDATE balance = VALUES(balance)")) {
+            stmt.setString(1, HOT_ACCOUNT);
+            stmt.setBytes(2, new byte[32]);
+            stmt.setBytes(3, new byte[16]);
+            stmt.setDouble(4, 1_000_000);
+            stmt.executeUpdate();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("\npool: " + pool);
+        pool.close();
+    }
+
+    @Benchmark
+    public double legacySelectForUpdate() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement checkStmt = conn.prepareStatement(
+                     "SELECT balance FROM customers WHERE accountNo = ? FOR UPDATE");
+                 PreparedStatement updateStmt = conn.prepareStatement(
+                     "UPDATE customers SET balance = ? WHERE accountNo = ?")) {
+                checkStmt.setString(1, HOT_ACCOUNT);
+                ResultSet rs = checkStmt.executeQuery();
+                rs.next();
+                double newBalance = rs.getDouble("balance") + AMOUNT / 100.0;
+                updateStmt.setDouble(1, newBalance);
+                updateStmt.setString(2, HOT_ACCOUNT);
+                updateStmt.executeUpdate();
+                conn.commit();
+                return newBalance;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Benchmark
+    public TransactionEngine.Result conditionalUpdate() throws SQLException {
+        return engine.deposit(HOT_ACCOUNT, AMOUNT);
+    }
+}
@@ -0,0 +1,105 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// End-to-end customer flows against the embedded InMemoryAccountStore, so no database or
+// network is involved. "journal" adds the transaction journal and its sync before every
+// acknowledgement, as in the application.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BankingFlowBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final String PASSWORD = "Secur3P@ssword";
+    private static final long OPENING_BALANCE = Money.ofMajor(1_000_000);
+    private static final long AMOUNT = 100;
+
+    @Param({"none", "journal"})
+    public String durability;
+
+    private TransactionJournal journal;
+    private AccountStore store;
+    private MfaChallengeStore challenges;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        journal = durability.equals("journal")
+                ? new TransactionJournal(Files.createTempDirectory("flow-journal")) : null;
+        store = new InMemoryAccountStore(journal, null, 0);
+        challenges = new MfaChallengeStore();
+        // One hash shared by every account keeps setup fast; authenticate() still does the full work
+        byte[] salt = PasswordEncryptionService.generateSalt();
+        byte[] hash = PasswordEncryptionService.getEncryptedPassword(PASSWORD, salt);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            store.create(accountNo(i), hash, salt, OPENING_BALANCE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println("\nstore: " + store + " challenges: " + challenges
+                + (journal == null ? "" : " journal: " + journal));
+        store.close();
+        challenges.close();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private static String accountNo(int i) {
+        return "FL" + (10_000_000 + i);
+    }
+
+    private static String randomAccount() {
+        return accountNo(ThreadLocalRandom.current().nextInt(ACCOUNTS));
+    }
+
+    // Password check, MFA challenge and verification, as SecureBankingApp.login/verifyLogin do
+    @Benchmark
+    public MfaChallengeStore.Outcome login() throws Exception {
+        String accountNo = randomAccount();
+        AccountStore.Credentials credentials = store.findCredentials(accountNo);
+        if (!PasswordEncryptionService.authenticate(PASSWORD, credentials.password(), credentials.salt())) {
+            throw new IllegalStateException("Authentication failed");
+        }
+        String code = MFAService.generateVerificationCode();
+        challenges.issue(accountNo, code);
+        return challenges.verify(accountNo, code);
+    }
+
+    @Benchmark
+    public long checkBalance() throws SQLException {
+        return store.getBalance(randomAccount());
+    }
+
+    @Benchmark
+    public TransactionEngine.Result deposit() throws SQLException {
+        return store.updateBalance(randomAccount(), AMOUNT, true);
+    }
+
+    @Benchmark
+    public TransactionEngine.Result withdraw() throws SQLException {
+        return store.updateBalance(randomAccount(), AMOUNT, false);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs the suites once per thread count with the GC/allocation profiler and writes one JSON
+// result file per run, named so that runs of different releases can be diffed side by side:
+//
+//   java -cp benchmarks.jar com.example.BenchmarkRunner [includeRegex]
+//       -Dbench.threads=1,4,16 -Dbench.results=results -Dbench.label=1.0
+//
+// BalanceContentionBenchmark needs MySQL and is only run when named explicitly.
+public class BenchmarkRunner {
+    private static final String DEFAULT_INCLUDE =
+            "AuthenticationBenchmark|BankingFlowBenchmark|InputValidatorBenchmark|MfaBenchmark"
+            + "|LoginThrottleBenchmark|MetricsBenchmark|MoneyBenchmark|PasswordHashingBenchmark|SessionTokenBenchmark"
+            + "|ShardingBenchmark|TransferBenchmark";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = args.length > 0 ? args[0] : DEFAULT_INCLUDE;
+        Path results = Path.of(System.getProperty("bench.results", "results"));
+        String label = System.getProperty("bench.label", "current");
+        Files.createDirectories(results);
+
+        for (String threads : System.getProperty("bench.threads", "1,4,16").split(",")) {
+            int count = Integer.parseInt(threads.trim());
+            Path output = results.resolve(String.format("jmh-%s-%dt.json", label, count));
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(count)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output.toString())
+                    .build();
+            new Runner(options).run();
+            System.out.println("Results written to " + output);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The original String.matches checks against the single-pass scanners in InputValidator.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputValidatorBenchmark {
+    @Param({"ABC12345", "abc12345"})
+    public String accountNo;
+
+    @Param({"Str0ng!Passw0rd", "weakpassword"})
+    public String password;
+
+    private static final int CHUNK = 1000;
+    private final String[] chunkAccountNos = new String[CHUNK];
+    private final String[] chunkPasswords = new String[CHUNK];
+    private final long[] chunkAmounts = new long[CHUNK];
+    private final boolean[] chunkValid = new boolean[CHUNK];
+
+    @Benchmark
+    public boolean legacyAccountNumber() {
+        return accountNo != null &&
+               accountNo.matches("[A-Z]{2,3}\\d{5,8}") &&
+               accountNo.length() <= 20;
+    }
+
+    @Benchmark
+    public boolean accountNumber() {
+        return InputValidator.validateAccountNumber(accountNo);
+    }
+
+    @Benchmark
+    public boolean legacyPassword() {
+        return password != null &&
+               password.length() >= 8 &&
+               password.matches(".*[A-Z].*") &&
+               password.matches(".*[a-z].*") &&
+               password.matches(".*\\d.*") &&
+               password.matches(".*[!@#$%^&*].*");
+    }
+
+    @Benchmark
+    public boolean password() {
+        return InputValidator.validatePassword(password);
+    }
+
+    @Benchmark
+    public boolean amount() {
+        return InputValidator.validateAmount(12_345);
+    }
+
+    // One bulk-import chunk; reported per chunk, not per record
+    @Benchmark
+    public int records() {
+        return InputValidator.validateRecords(chunkAccountNos, chunkPasswords, chunkAmounts, CHUNK, chunkValid);
+    }
+
+    @Setup
+    public void setUpChunk() {
+        for (int i = 0; i < CHUNK; i++) {
+            chunkAccountNos[i] = i % 10 == 0 ? "bad" + i : "AB" + (1_000_000 + i);
+            chunkPasswords[i] = i % 7 == 0 ? "weakpassword" : "Str0ng!Passw0rd" + i;
+            chunkAmounts[i] = 100 + i;
+        }
+    }
+}
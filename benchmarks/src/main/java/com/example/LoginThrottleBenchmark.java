@@ -0,0 +1,74 @@
+package com.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Legitimate logins while a brute-force attack runs alongside. The attacker threads guess
+// passwords for one victim account from one address; the customer thread logs in to a different
+// account from a different address each time. Compare "customer" latency with the limiter
+// "off" and "on": without it the attack competes for every core with full PBKDF2 work.
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class LoginThrottleBenchmark {
+    private static final String PASSWORD = "Secur3P@ssword";
+    private static final int CUSTOMERS = 100_000;
+
+    @Param({"off", "on"})
+    public String limiter;
+
+    private LoginRateLimiter rateLimiter;
+    private byte[] salt;
+    private byte[] stored;
+
+    @Setup
+    public void setUp() throws Exception {
+        rateLimiter = limiter.equals("on") ? new LoginRateLimiter() : null;
+        salt = PasswordEncryptionService.generateSalt();
+        stored = PasswordEncryptionService.getEncryptedPassword(PASSWORD, salt);
+    }
+
+    private boolean attempt(String accountNo, String source, String password) throws Exception {
+        if (rateLimiter != null
+                && rateLimiter.tryAcquire(accountNo, source) != LoginRateLimiter.Decision.ALLOWED) {
+            return false;
+        }
+        boolean authenticated = PasswordEncryptionService.authenticate(password, stored, salt);
+        if (authenticated && rateLimiter != null) {
+            rateLimiter.onSuccess(accountNo);
+        }
+        return authenticated;
+    }
+
+    @Benchmark
+    @Group("attack")
+    @GroupThreads(1)
+    public boolean customer() throws Exception {
+        int id = ThreadLocalRandom.current().nextInt(CUSTOMERS);
+        return attempt("CU" + (10_000_000 + id), "10.1." + (id >>> 8 & 0xff) + "." + (id & 0xff), PASSWORD);
+    }
+
+    @Benchmark
+    @Group("attack")
+    @GroupThreads(16)
+    public boolean attacker() throws Exception {
+        return attempt("VI10000001", "203.0.113.7", "Guess" + ThreadLocalRandom.current().nextInt());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Cost of the instrumentation SecureBankingApp adds to each operation: one timer record and one
+// counter increment, against the bare System.nanoTime() calls they need anyway. Run with -t to
+// see how the shared histogram behaves under contention.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class MetricsBenchmark {
+    private final LatencyHistogram timer = new Metrics().timer("operation");
+    private final LongAdder counter = new Metrics().counter("operation_failures");
+
+    @Benchmark
+    public long baselineNanoTime() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    public void recordTimer() {
+        timer.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public void incrementCounter() {
+        counter.increment();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Code generation, and a full issue/verify round trip through MfaChallengeStore over a large
+// population of accounts so lookups miss the CPU caches as they would in production.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MfaBenchmark {
+    private static final int ACCOUNTS = 1_000_000;
+
+    private MfaChallengeStore challenges;
+
+    @Setup
+    public void setUp() {
+        challenges = new MfaChallengeStore();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("\nchallenges: " + challenges);
+        challenges.close();
+    }
+
+    @Benchmark
+    public String generateVerificationCode() {
+        return MFAService.generateVerificationCode();
+    }
+
+    @Benchmark
+    public MfaChallengeStore.Outcome issueAndVerify() {
+        String accountNo = "MF" + (10_000_000 + ThreadLocalRandom.current().nextInt(ACCOUNTS));
+        challenges.issue(accountNo, "123456");
+        return challenges.verify(accountNo, "123456");
+    }
+}
@@ -0,0 +1,74 @@
+package com.example;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parse-validate-accumulate over a batch of amounts with double, BigDecimal and Money.
+// Run with "-prof gc" for allocation per operation.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final int BATCH = 1024;
+
+    private String[] amounts;
+
+    @Setup
+    public void setUp() {
+        amounts = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            amounts[i] = (i * 7919 % 100000) + "." + String.format("%02d", i % 100);
+        }
+    }
+
+    @Benchmark
+    public double doubleParseAndSum() {
+        double total = 0;
+        for (String amount : amounts) {
+            double value = Double.parseDouble(amount);
+            if (value > 0 && value <= 1000000) {
+                total += value;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalParseAndSum() {
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal max = BigDecimal.valueOf(1000000);
+        for (String amount : amounts) {
+            BigDecimal value = new BigDecimal(amount);
+            if (value.signum() > 0 && value.compareTo(max) <= 0) {
+                total = total.add(value);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long moneyParseAndSum() {
+        long total = 0;
+        for (String amount : amounts) {
+            long value = Money.parse(amount);
+            if (InputValidator.validateAmount(value)) {
+                total = Money.add(total, value);
+            }
+        }
+        return total;
+    }
+}
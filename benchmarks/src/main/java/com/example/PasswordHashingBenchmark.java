@@ -0,0 +1,62 @@
+package com.example;
+
+import java.security.spec.KeySpec;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Compares the original SecretKeyFactory-per-call path against the cached Pbkdf2Engine.
+// Run with "-prof gc" to see the allocation difference; low iteration counts make the fixed
+// per-call cost (provider lookup, PBEKeySpec, char[] copy) stand out.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+    @Param({"1", "1000", "20000"})
+    public int iterations;
+
+    private final String password = "Secur3P@ssword";
+    private byte[] salt;
+    private byte[] stored;
+
+    @Setup
+    public void setUp() throws Exception {
+        salt = new byte[16];
+        new Random(42).nextBytes(salt);
+        stored = legacyFactoryPerCall();
+    }
+
+    @Benchmark
+    public byte[] legacyFactoryPerCall() throws Exception {
+        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, 256);
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        return factory.generateSecret(spec).getEncoded();
+    }
+
+    @Benchmark
+    public byte[] cachedEngine() throws Exception {
+        return Pbkdf2Engine.current().derive(password, salt, iterations, 256);
+    }
+
+    @Benchmark
+    public boolean cachedEngineMatches() throws Exception {
+        return Pbkdf2Engine.current().matches(password, salt, iterations, stored);
+    }
+}
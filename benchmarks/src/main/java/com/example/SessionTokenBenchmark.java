@@ -0,0 +1,79 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Re-identifying a caller from a session token against the full password check it replaces
+// (PasswordEncryptionService.authenticate at the production iteration count). Run with
+// "-prof gc": verify() should allocate nothing. The revoked variant checks a token against a
+// revocation list of 1000 entries.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionTokenBenchmark {
+    private static final int REVOKED = 1000;
+
+    private final String password = "Secur3P@ssword";
+    private byte[] salt;
+    private byte[] stored;
+    private SessionTokens tokens;
+    private String token;
+    private String revokedToken;
+    private String forgedToken;
+
+    @Setup
+    public void setUp() throws Exception {
+        salt = PasswordEncryptionService.generateSalt();
+        stored = PasswordEncryptionService.getEncryptedPassword(password, salt);
+
+        tokens = new SessionTokens(Duration.ofHours(1));
+        token = tokens.issue("ABC12345");
+        for (int i = 0; i < REVOKED; i++) {
+            tokens.revoke(tokens.issue("AB" + (10_000 + i)));
+        }
+        revokedToken = tokens.issue("ABC12345");
+        tokens.revoke(revokedToken);
+        char[] chars = token.toCharArray();
+        chars[chars.length - 1] = chars[chars.length - 1] == 'A' ? 'B' : 'A';
+        forgedToken = new String(chars);
+    }
+
+    @Benchmark
+    public boolean authenticate() throws Exception {
+        return PasswordEncryptionService.authenticate(password, stored, salt);
+    }
+
+    @Benchmark
+    public long verifyToken() {
+        return tokens.verify(token);
+    }
+
+    @Benchmark
+    public long verifyRevokedToken() {
+        return tokens.verify(revokedToken);
+    }
+
+    @Benchmark
+    public long verifyForgedToken() {
+        return tokens.verify(forgedToken);
+    }
+
+    @Benchmark
+    public String issueToken() {
+        return tokens.issue("ABC12345");
+    }
+}
@@ -0,0 +1,96 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Write throughput through ShardedAccountStore as shards are added. By default every shard is
+// an InMemoryAccountStore with its own transaction journal, so each shard has its own durable
+// write path, like a separate primary. -p store=jdbc uses one MySQL instance per shard from
+// -Dbench.shards=<jdbc url>,<jdbc url>,... (at least as many URLs as the largest "shards"
+// value), each with the customers table.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(32)
+@Fork(1)
+public class ShardingBenchmark {
+    private static final int ACCOUNTS = 20_000;
+    private static final long OPENING_BALANCE = Money.ofMajor(1_000_000);
+    private static final long AMOUNT = 1;
+
+    @Param({"memory"})
+    public String store;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private final List<TransactionJournal> journals = new ArrayList<>();
+    private ShardedAccountStore accounts;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        List<AccountStore> stores = new ArrayList<>();
+        String[] urls = System.getProperty("bench.shards", "").split(",");
+        for (int i = 0; i < shards; i++) {
+            TransactionJournal journal = new TransactionJournal(Files.createTempDirectory("shard-journal"));
+            journals.add(journal);
+            if (store.equals("jdbc")) {
+                stores.add(new JdbcAccountStore(new ConnectionPool(urls[i].trim(),
+                        System.getProperty("bank.user", "root"), System.getProperty("bank.password", "password"), 16),
+                        new BalanceCache(ACCOUNTS), journal, PostingEngine.DEFAULT_LINGER_MICROS));
+            } else {
+                stores.add(new InMemoryAccountStore(journal, null, 0));
+            }
+        }
+        accounts = new ShardedAccountStore(stores);
+        // With jdbc, accounts left over from an earlier run are kept as they are
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.create(accountNo(i), new byte[32], new byte[16], OPENING_BALANCE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println("\nstore: " + accounts);
+        accounts.close();
+        for (TransactionJournal journal : journals) {
+            journal.close();
+        }
+    }
+
+    private static String accountNo(int i) {
+        return "SB" + (10_000_000 + i);
+    }
+
+    @Benchmark
+    public TransactionEngine.Result deposit() throws SQLException {
+        return accounts.updateBalance(accountNo(ThreadLocalRandom.current().nextInt(ACCOUNTS)), AMOUNT, true);
+    }
+
+    @Benchmark
+    public long balance() throws SQLException {
+        return accounts.getBalance(accountNo(ThreadLocalRandom.current().nextInt(ACCOUNTS)));
+    }
+}
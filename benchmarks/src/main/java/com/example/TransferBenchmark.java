@@ -0,0 +1,117 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Transfers in both directions between a small set of hot accounts, so concurrent A->B and
+// B->A transfers are common. The in-memory store runs by default; -p store=jdbc runs against
+// MySQL (-Dbank.url, -Dbank.user, -Dbank.password) and the teardown line reports how many
+// deadlocks or serialization failures TransferEngine had to retry.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class TransferBenchmark {
+    private static final long OPENING_BALANCE = Money.ofMajor(1_000_000_000);
+    private static final long AMOUNT = 1;
+
+    @Param({"memory"})
+    public String store;
+
+    @Param({"4", "64"})
+    public int hotAccounts;
+
+    private AccountStore accounts;
+    private TransactionJournal journal;
+    private String[] accountNos;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        journal = new TransactionJournal(Files.createTempDirectory("transfer-journal"));
+        accountNos = new String[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            accountNos[i] = "HOT" + (10_000 + i);
+        }
+
+        if (store.equals("jdbc")) {
+            ConnectionPool pool = new ConnectionPool(
+                    System.getProperty("bank.url", "jdbc:mysql://localhost:3306/bank_system"),
+                    System.getProperty("bank.user", "root"), System.getProperty("bank.password", "password"), 32);
+            accounts = new JdbcAccountStore(pool, new BalanceCache(1024), journal,
+                    PostingEngine.DEFAULT_LINGER_MICROS);
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO customers (accountNo, password, salt, balance) VALUES (?, ?, ?, "
+                     + Money.BIND_PARAM + ") ON DUPLICATE KEY UPDATE balance = VALUES(balance)")) {
+                for (String accountNo : accountNos) {
+                    stmt.setString(1, accountNo);
+                    stmt.setBytes(2, new byte[32]);
+                    stmt.setBytes(3, new byte[16]);
+                    Money.bind(stmt, 4, OPENING_BALANCE);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+        } else {
+            accounts = new InMemoryAccountStore(journal, null, 0);
+            for (String accountNo : accountNos) {
+                accounts.create(accountNo, new byte[32], new byte[16], OPENING_BALANCE);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println("\nstore: " + accounts);
+        accounts.close();
+        journal.close();
+    }
+
+    @Benchmark
+    public AccountStore.TransferResult transfer() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(hotAccounts);
+        int to = (from + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        return accounts.transfer(accountNos[from], accountNos[to], AMOUNT);
+    }
+
+    // A three-leg batch over three distinct hot accounts, in random order
+    @Benchmark
+    public AccountStore.TransferResult multiLeg() throws SQLException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(hotAccounts);
+        int b = (a + 1 + random.nextInt(hotAccounts - 1)) % hotAccounts;
+        int c = random.nextInt(hotAccounts);
+        while (c == a || c == b) {
+            c = random.nextInt(hotAccounts);
+        }
+        return accounts.transfer(List.of(
+                new AccountStore.Transfer(accountNos[a], accountNos[b], AMOUNT),
+                new AccountStore.Transfer(accountNos[b], accountNos[c], AMOUNT),
+                new AccountStore.Transfer(accountNos[c], accountNos[a], AMOUNT)));
+    }
+}
@@ -0,0 +1,197 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bloom filter over packed account numbers, so lookups for accounts that do not exist (typos,
+// enumeration) are answered without a database round trip. It may say "maybe" for an absent
+// account, never "no" for a present one. Bits are set with CAS so creates can run concurrently
+// with lookups; positions come from two independent mixes of the key (Kirsch-Mitzenmacher).
+//
+// 10M accounts at a 1% false-positive rate take about 12 MB. The filter can be written to a
+// snapshot file together with a caller-supplied stamp (JdbcAccountStore uses the highest row id
+// it covers), so a restart can reload it instead of streaming the whole table.
+public class AccountBloomFilter {
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+    private static final int SNAPSHOT_MAGIC = 0x424c4f4d; // "BLOM"
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 8 + 8;
+    private static final int IO_CHUNK_WORDS = 64 * 1024;
+
+    private final AtomicLongArray words;
+    private final long numBits;
+    private final int hashes;
+    private final LongAdder insertions = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public AccountBloomFilter(long expectedAccounts, double falsePositiveRate) {
+        long n = Math.max(1, expectedAccounts);
+        long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.numBits = Math.max(64, (bits + 63) & ~63L);
+        this.hashes = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+        this.words = new AtomicLongArray(Math.toIntExact(numBits >>> 6));
+    }
+
+    private AccountBloomFilter(long numBits, int hashes) {
+        this.numBits = numBits;
+        this.hashes = hashes;
+        this.words = new AtomicLongArray(Math.toIntExact(numBits >>> 6));
+    }
+
+    public void add(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key != AccountNumbers.INVALID) {
+            add(key);
+        }
+    }
+
+    public void add(long key) {
+        long h1 = AccountNumbers.mix(key);
+        long h2 = AccountNumbers.mix(key ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.unsignedMultiplyHigh(h1 + i * h2, numBits);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0) {
+                long witness = words.compareAndExchange(index, word, word | mask);
+                if (witness == word) {
+                    break;
+                }
+                word = witness;
+            }
+        }
+        insertions.increment();
+    }
+
+    // False means the account certainly does not exist. Malformed numbers never exist.
+    public boolean mightContain(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        boolean maybe = key != AccountNumbers.INVALID && mightContain(key);
+        if (!maybe) {
+            negatives.increment();
+        }
+        return maybe;
+    }
+
+    private boolean mightContain(long key) {
+        long h1 = AccountNumbers.mix(key);
+        long h2 = AccountNumbers.mix(key ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.unsignedMultiplyHigh(h1 + i * h2, numBits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Called by the owner when mightContain() said "maybe" but the account was not found
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    // Predicted rate for the number of insertions so far: (1 - e^(-kn/m))^k
+    public double getExpectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashes * (double) insertions.sum() / numBits), hashes);
+    }
+
+    // Share of lookups for absent accounts that the filter let through to the database
+    public double getObservedFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long absent = fp + negatives.sum();
+        return absent == 0 ? 0 : (double) fp / absent;
+    }
+
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    public long getMemoryBytes() {
+        return numBits >>> 3;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bits=%d hashes=%d insertions=%d negatives=%d falsePositives=%d "
+                        + "expectedFpp=%.5f observedFpp=%.5f", numBits, hashes, insertions.sum(), negatives.sum(),
+                falsePositives.sum(), getExpectedFalsePositiveRate(), getObservedFalsePositiveRate());
+    }
+
+    // Written to a temporary file and moved into place so a crash never leaves a torn snapshot
+    public void writeTo(Path file, long stamp) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_CHUNK_WORDS * 8);
+            buffer.putInt(SNAPSHOT_MAGIC).putLong(numBits).putInt(hashes).putLong(stamp).putLong(insertions.sum());
+            for (int i = 0; i < words.length(); i++) {
+                if (buffer.remaining() < 8) {
+                    writeFully(channel, buffer.flip());
+                    buffer.clear();
+                }
+                buffer.putLong(words.get(i));
+            }
+            writeFully(channel, buffer.flip());
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public record Snapshot(AccountBloomFilter filter, long stamp) {}
+
+    // Null if the file does not exist
+    public static Snapshot readFrom(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_CHUNK_WORDS * 8);
+            buffer.limit(HEADER_BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an account filter snapshot: " + file);
+            }
+            AccountBloomFilter filter = new AccountBloomFilter(buffer.getLong(), buffer.getInt());
+            long stamp = buffer.getLong();
+            filter.insertions.add(buffer.getLong());
+            if (channel.size() != HEADER_BYTES + filter.numBits / 8) {
+                throw new IOException("Truncated account filter snapshot: " + file);
+            }
+
+            int index = 0;
+            while (index < filter.words.length()) {
+                buffer.clear();
+                buffer.limit(Math.min(IO_CHUNK_WORDS, filter.words.length() - index) * 8);
+                readFully(channel, buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    filter.words.set(index++, buffer.getLong());
+                }
+            }
+            return new Snapshot(filter, stamp);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Unexpected end of account filter snapshot");
+            }
+        }
+    }
+}
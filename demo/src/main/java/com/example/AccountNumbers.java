@@ -0,0 +1,59 @@
+package com.example;
+
+// Packs an account number of the validated form [A-Z]{2,3}\d{5,8} into a single long so it can
+// be used as a primitive key. The encoding is reversible and never produces 0, which callers
+// may therefore use as an "empty" marker.
+public final class AccountNumbers {
+    public static final long INVALID = -1;
+    private static final long NUMBER_RANGE = 100_000_000L;
+    private static final int LETTER_BASE = 27;
+
+    private AccountNumbers() {
+    }
+
+    public static long pack(String accountNo) {
+        if (!InputValidator.validateAccountNumber(accountNo)) {
+            return INVALID;
+        }
+        int letters = Character.isDigit(accountNo.charAt(2)) ? 2 : 3;
+        long prefix = 0;
+        for (int i = 0; i < letters; i++) {
+            prefix = prefix * LETTER_BASE + (accountNo.charAt(i) - 'A' + 1);
+        }
+        long number = 0;
+        for (int i = letters; i < accountNo.length(); i++) {
+            number = number * 10 + (accountNo.charAt(i) - '0');
+        }
+        int digits = accountNo.length() - letters;
+        return (prefix * 4 + (digits - 5)) * NUMBER_RANGE + number;
+    }
+
+    public static String unpack(long key) {
+        long number = key % NUMBER_RANGE;
+        long header = key / NUMBER_RANGE;
+        int digits = (int) (header % 4) + 5;
+        long prefix = header / 4;
+
+        char[] chars = new char[3 + digits];
+        int letters = prefix >= LETTER_BASE * LETTER_BASE ? 3 : 2;
+        for (int i = letters - 1; i >= 0; i--) {
+            chars[i] = (char) ('A' + prefix % LETTER_BASE - 1);
+            prefix /= LETTER_BASE;
+        }
+        for (int i = letters + digits - 1; i >= letters; i--) {
+            chars[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(chars, 0, letters + digits);
+    }
+
+    // 64-bit finalizer from MurmurHash3; spreads the structured key bits for hash tables and filters
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
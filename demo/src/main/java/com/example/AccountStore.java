@@ -0,0 +1,48 @@
+package com.example;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Storage backend for customer accounts. JdbcAccountStore is the MySQL deployment;
+// InMemoryAccountStore runs without a database for local load tests and deterministic runs.
+// Failures surface as SQLException whichever backend is in use.
+public interface AccountStore extends AutoCloseable {
+    long NO_ACCOUNT = Long.MIN_VALUE;
+
+    record Credentials(byte[] password, byte[] salt) {}
+
+    record Transfer(String fromAccountNo, String toAccountNo, long amount) {}
+
+    // failedLeg is the index of the leg that could not be applied, or -1. balance is that leg's
+    // source account after the legs before it, or on success the first source's final balance.
+    record TransferResult(TransactionEngine.Status status, int failedLeg, long balance) {}
+
+    // Returns false if the account already exists
+    boolean create(String accountNo, byte[] password, byte[] salt, long openingBalance) throws SQLException;
+
+    // Null if the account does not exist
+    Credentials findCredentials(String accountNo) throws SQLException;
+
+    // Balance in cents, or NO_ACCOUNT
+    long getBalance(String accountNo) throws SQLException;
+
+    TransactionEngine.Result updateBalance(String accountNo, long amount, boolean isDeposit) throws SQLException;
+
+    // Applies every leg, in order, or none of them
+    TransferResult transfer(List<Transfer> legs) throws SQLException;
+
+    default TransferResult transfer(String fromAccountNo, String toAccountNo, long amount) throws SQLException {
+        return transfer(List.of(new Transfer(fromAccountNo, toAccountNo, amount)));
+    }
+
+    // Deletes the account; false if it did not exist. Used to move accounts between shards.
+    boolean remove(String accountNo) throws SQLException;
+
+    // Calls action with every account number, in no particular order. Accounts created or
+    // removed meanwhile may or may not be seen.
+    void forEachAccount(Consumer<String> action) throws SQLException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,273 @@
+package com.example;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+// In-process cache of balances (in cents) keyed by packed account number. Each segment is an
+// open-addressing table of primitive longs guarded by its own StampedLock; reads are optimistic
+// and lock-free in the common case. When a segment is full the CLOCK hand evicts the first
+// entry that has not been read since the hand last passed it (an LRU approximation).
+//
+// Writers call put() while they still hold the database row lock, so puts for one account
+// arrive in commit order. Readers that miss use fillToken()/fill() so a value read from the
+// database is discarded if a writer touched the segment in the meantime.
+public class BalanceCache {
+    public static final long MISSING = Long.MIN_VALUE;
+    private static final int SEGMENTS = 16;
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final List<Consumer<String>> invalidationListeners = new CopyOnWriteArrayList<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BalanceCache(int maxEntries) {
+        int perSegment = Math.max(1, maxEntries / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    public long get(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        long balance = key == AccountNumbers.INVALID ? MISSING : segmentFor(key).get(key);
+        if (balance == MISSING) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return balance;
+    }
+
+    public long fillToken(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        return key == AccountNumbers.INVALID ? 0 : segmentFor(key).version;
+    }
+
+    // Installs a value read from the database unless a write reached the segment after fillToken()
+    public void fill(String accountNo, long balance, long token) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key != AccountNumbers.INVALID) {
+            segmentFor(key).fill(key, balance, token);
+        }
+    }
+
+    // Write-through from the transaction path; also announced to other nodes
+    public void put(String accountNo, long balance) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key != AccountNumbers.INVALID) {
+            segmentFor(key).put(key, balance);
+            publish(accountNo);
+        }
+    }
+
+    public void invalidate(String accountNo) {
+        invalidateLocal(accountNo);
+        publish(accountNo);
+    }
+
+    // Entry point for invalidations received from other nodes; not re-published
+    public void invalidateLocal(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key != AccountNumbers.INVALID) {
+            segmentFor(key).remove(key);
+        }
+    }
+
+    public void addInvalidationListener(Consumer<String> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    private void publish(String accountNo) {
+        for (Consumer<String> listener : invalidationListeners) {
+            listener.accept(accountNo);
+        }
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (AccountNumbers.mix(key) >>> 60) & (SEGMENTS - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        long lookups = getHits() + getMisses();
+        return String.format("size=%d hits=%d misses=%d hitRate=%.1f%% evictions=%d", size(), getHits(),
+                getMisses(), lookups == 0 ? 0 : 100.0 * getHits() / lookups, getEvictions());
+    }
+
+    private final class Segment {
+        private final StampedLock lock = new StampedLock();
+        private final long[] keys;
+        private final long[] values;
+        private final boolean[] referenced;
+        private final int mask;
+        private final int capacity;
+        private int size;
+        private int hand;
+        private volatile long version;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            this.keys = new long[tableSize];
+            this.values = new long[tableSize];
+            this.referenced = new boolean[tableSize];
+            this.mask = tableSize - 1;
+        }
+
+        long get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            long value = find(key);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    value = find(key);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return value;
+        }
+
+        private long find(long key) {
+            for (int i = indexOf(key), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                long k = keys[i];
+                if (k == key) {
+                    long value = values[i];
+                    referenced[i] = true; // benign race: only steers eviction
+                    return value;
+                }
+                if (k == EMPTY) {
+                    return MISSING;
+                }
+            }
+            return MISSING;
+        }
+
+        void put(long key, long balance) {
+            long stamp = lock.writeLock();
+            try {
+                version++;
+                insert(key, balance);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void fill(long key, long balance, long token) {
+            long stamp = lock.writeLock();
+            try {
+                if (version == token && slotOf(key) < 0) {
+                    insert(key, balance);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                version++;
+                int slot = slotOf(key);
+                if (slot >= 0) {
+                    delete(slot);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void insert(long key, long balance) {
+            int slot = slotOf(key);
+            if (slot >= 0) {
+                values[slot] = balance;
+                referenced[slot] = true;
+                return;
+            }
+            if (size >= capacity) {
+                evict();
+            }
+            int i = indexOf(key);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = balance;
+            referenced[i] = false;
+            size++;
+        }
+
+        private void evict() {
+            while (true) {
+                hand = (hand + 1) & mask;
+                if (keys[hand] == EMPTY) {
+                    continue;
+                }
+                if (referenced[hand]) {
+                    referenced[hand] = false;
+                } else {
+                    delete(hand);
+                    evictions.increment();
+                    return;
+                }
+            }
+        }
+
+        private int slotOf(long key) {
+            for (int i = indexOf(key); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        // Backward-shift deletion keeps probe sequences intact without tombstones
+        private void delete(int slot) {
+            int gap = slot;
+            for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = indexOf(keys[i]);
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    referenced[gap] = referenced[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = EMPTY;
+            referenced[gap] = false;
+            size--;
+        }
+
+        private int indexOf(long key) {
+            return (int) AccountNumbers.mix(key) & mask;
+        }
+    }
+}
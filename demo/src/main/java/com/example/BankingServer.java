@@ -0,0 +1,201 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Line-oriented TCP front end. Each connection gets its own Session and virtual thread.
+//
+// Requests are single lines of space separated fields:
+//   CREATE <accountNo> <password> <initialDeposit>
+//   LOGIN <accountNo> <password>
+//   VERIFY <code>
+//   RESUME <session token>
+//   BALANCE | STATEMENT | DEPOSIT <amount> | WITHDRAW <amount> | LOGOUT | QUIT
+//   TRANSFER <toAccountNo> <amount>
+// Every response is terminated by a line containing a single ".".
+public class BankingServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 9090;
+    static final int MAX_LINE_LENGTH = 512;
+    private static final String END_OF_RESPONSE = ".";
+
+    private static final Logger logger = Logger.getLogger(BankingServer.class.getName());
+
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    public BankingServer(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public void serve() throws IOException {
+        logger.info("Secure Bank System listening on port " + getPort());
+        while (serverChannel.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                if (!serverChannel.isOpen()) {
+                    return;
+                }
+                throw e;
+            }
+            sessions.execute(() -> handle(channel));
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        activeSessions.incrementAndGet();
+        try (channel;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                     Channels.newOutputStream(channel), StandardCharsets.UTF_8))) {
+
+            // The client's address without the port, so login throttling applies per host
+            Session session = new Session(out, channel.getRemoteAddress() instanceof InetSocketAddress address
+                    ? address.getAddress().getHostAddress() : String.valueOf(channel.getRemoteAddress()));
+            out.println("Welcome to Secure Bank System");
+            out.println(END_OF_RESPONSE);
+            out.flush();
+
+            StringBuilder buffer = new StringBuilder(MAX_LINE_LENGTH + 1);
+            String line;
+            while ((line = readLine(in, buffer)) != null) {
+                boolean keepOpen = line.length() > MAX_LINE_LENGTH
+                        ? !reject(out, "Request too long")
+                        : dispatch(session, line.trim());
+                out.println(END_OF_RESPONSE);
+                out.flush();
+                if (!keepOpen) {
+                    // Let the response go out before the close; the rest of the request is never read
+                    channel.shutdownOutput();
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Session closed with error", e);
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    // Like BufferedReader.readLine, but stops after MAX_LINE_LENGTH + 1 characters instead of
+    // buffering a line of any length; a longer result means the request was too long
+    static String readLine(BufferedReader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                break;
+            }
+            line.append((char) c);
+            if (line.length() > MAX_LINE_LENGTH + 1
+                    || (line.length() == MAX_LINE_LENGTH + 1 && c != '\r')) {
+                return line.toString();
+            }
+        }
+        if (c == -1 && line.isEmpty()) {
+            return null;
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    private static boolean dispatch(Session session, String line) {
+        String[] fields = line.split(" +");
+        String command = fields[0].toUpperCase();
+        PrintWriter out = session.out();
+
+        switch (command) {
+            case "CREATE" -> {
+                if (fields.length != 4) {
+                    return reject(out, "Usage: CREATE <accountNo> <password> <initialDeposit>");
+                }
+                SecureBankingApp.createAccount(session, fields[1], fields[2], fields[3]);
+            }
+            case "LOGIN" -> {
+                if (fields.length != 3) {
+                    return reject(out, "Usage: LOGIN <accountNo> <password>");
+                }
+                if (SecureBankingApp.login(session, fields[1], fields[2])) {
+                    out.println("Enter Verification Code");
+                }
+            }
+            case "VERIFY" -> {
+                if (fields.length != 2) {
+                    return reject(out, "Usage: VERIFY <code>");
+                }
+                SecureBankingApp.verifyLogin(session, fields[1]);
+            }
+            case "RESUME" -> {
+                if (fields.length != 2) {
+                    return reject(out, "Usage: RESUME <token>");
+                }
+                SecureBankingApp.resume(session, fields[1]);
+            }
+            case "BALANCE" -> SecureBankingApp.checkBalance(session);
+            case "STATEMENT" -> SecureBankingApp.printStatement(session);
+            case "DEPOSIT", "WITHDRAW" -> {
+                if (fields.length != 2) {
+                    return reject(out, "Usage: " + command + " <amount>");
+                }
+                if (command.equals("DEPOSIT")) {
+                    SecureBankingApp.deposit(session, fields[1]);
+                } else {
+                    SecureBankingApp.withdraw(session, fields[1]);
+                }
+            }
+            case "TRANSFER" -> {
+                if (fields.length != 3) {
+                    return reject(out, "Usage: TRANSFER <toAccountNo> <amount>");
+                }
+                SecureBankingApp.transfer(session, fields[1], fields[2]);
+            }
+            case "LOGOUT" -> SecureBankingApp.logout(session);
+            case "QUIT" -> {
+                session.logout();
+                out.println("Thank you for using Secure Bank System. Goodbye!");
+                return false;
+            }
+            default -> out.println("Invalid option");
+        }
+        return true;
+    }
+
+    private static boolean reject(PrintWriter out, String message) {
+        out.println(message);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverChannel.close();
+        sessions.shutdownNow();
+    }
+}
@@ -0,0 +1,363 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+// Streams accounts from a CSV (accountNo,password,balance) or NDJSON file into the customers
+// table. Rows are read and validated a chunk at a time, hashed in parallel on every core and
+// written with one JDBC batch and one commit per chunk. After each commit the last input line
+// is recorded in <file>.checkpoint so a rerun resumes where the previous one stopped.
+// Add rewriteBatchedStatements=true to the JDBC URL to have MySQL send each batch as one INSERT.
+public class BulkAccountImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+    private static final String INSERT_SQL = "INSERT IGNORE INTO customers (accountNo, password, salt, balance) "
+            + "VALUES (?, ?, ?, " + Money.BIND_PARAM + ")";
+
+    private static final Logger logger = Logger.getLogger(BulkAccountImporter.class.getName());
+
+    private final ConnectionPool pool;
+    private final int chunkSize;
+    private final PrintWriter progress;
+
+    public record Stats(long linesRead, long imported, long rejected, long duplicates, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : imported * 1e9 / elapsedNanos;
+        }
+    }
+
+    // One chunk of raw records held column-wise for InputValidator.validateRecords
+    private static final class Chunk {
+        final String[] accountNos;
+        final String[] passwords;
+        final long[] balances;
+        final long[] lineNumbers;
+        final boolean[] valid;
+        int size;
+
+        Chunk(int capacity) {
+            accountNos = new String[capacity];
+            passwords = new String[capacity];
+            balances = new long[capacity];
+            lineNumbers = new long[capacity];
+            valid = new boolean[capacity];
+        }
+
+        void add(long lineNumber, String[] fields) {
+            accountNos[size] = fields[0];
+            passwords[size] = fields[1];
+            try {
+                balances[size] = Money.parse(fields[2]);
+            } catch (NumberFormatException e) {
+                balances[size] = -1; // rejected by validateAmount
+            }
+            lineNumbers[size] = lineNumber;
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(accountNos, 0, size, null);
+            Arrays.fill(passwords, 0, size, null);
+            size = 0;
+        }
+    }
+
+    public BulkAccountImporter(ConnectionPool pool, int chunkSize, PrintWriter progress) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+        this.progress = progress;
+    }
+
+    public Stats importFile(Path file) throws IOException, SQLException, InterruptedException {
+        boolean json = file.getFileName().toString().endsWith(".ndjson")
+                || file.getFileName().toString().endsWith(".jsonl");
+        Path checkpoint = file.resolveSibling(file.getFileName() + ".checkpoint");
+        long resumeAfter = readCheckpoint(checkpoint);
+        if (resumeAfter > 0) {
+            progress.println("Resuming after line " + resumeAfter);
+        }
+
+        long start = System.nanoTime();
+        long lastReport = start;
+        long lineNumber = 0;
+        long[] counts = new long[3]; // imported, rejected, duplicates
+        Chunk chunk = new Chunk(chunkSize);
+
+        ExecutorService hashers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= resumeAfter || line.isBlank() || isHeader(line, json)) {
+                    continue;
+                }
+
+                String[] fields = json ? parseJsonFields(line) : parseCsvFields(line);
+                if (fields == null || fields[0] == null || fields[1] == null || fields[2] == null) {
+                    counts[1]++;
+                    logger.warning("Rejected malformed record on line " + lineNumber);
+                    continue;
+                }
+
+                chunk.add(lineNumber, fields);
+                if (chunk.size == chunkSize) {
+                    flush(chunk, hashers, counts);
+                    writeCheckpoint(checkpoint, lineNumber);
+                }
+
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    report(new Stats(lineNumber, counts[0], counts[1], counts[2], now - start));
+                }
+            }
+
+            flush(chunk, hashers, counts);
+            writeCheckpoint(checkpoint, lineNumber);
+        } finally {
+            hashers.shutdownNow();
+        }
+
+        Stats stats = new Stats(lineNumber, counts[0], counts[1], counts[2], System.nanoTime() - start);
+        report(stats);
+        Files.deleteIfExists(checkpoint);
+        return stats;
+    }
+
+    private void report(Stats stats) {
+        progress.printf("lines=%d imported=%d rejected=%d duplicates=%d (%.0f rows/s)%n", stats.linesRead(),
+                stats.imported(), stats.rejected(), stats.duplicates(), stats.rowsPerSecond());
+        progress.flush();
+    }
+
+    private void flush(Chunk chunk, ExecutorService hashers, long[] counts) throws SQLException, InterruptedException {
+        if (chunk.size == 0) {
+            return;
+        }
+        int valid = InputValidator.validateRecords(chunk.accountNos, chunk.passwords, chunk.balances, chunk.size,
+                chunk.valid);
+        for (int i = 0; i < chunk.size; i++) {
+            if (!chunk.valid[i]) {
+                logger.warning("Rejected invalid record on line " + chunk.lineNumbers[i]);
+            }
+        }
+        int inserted = valid == 0 ? 0 : writeChunk(chunk, hashers);
+        counts[0] += inserted;
+        counts[1] += chunk.size - valid;
+        counts[2] += valid - inserted;
+        chunk.clear();
+    }
+
+    private int writeChunk(Chunk chunk, ExecutorService hashers) throws SQLException, InterruptedException {
+        List<Future<byte[][]>> hashes = new ArrayList<>(chunk.size);
+        for (int i = 0; i < chunk.size; i++) {
+            String password = chunk.passwords[i];
+            hashes.add(chunk.valid[i] ? hashers.submit(() -> {
+                byte[] salt = PasswordEncryptionService.generateSalt();
+                return new byte[][] {PasswordEncryptionService.getEncryptedPassword(password, salt), salt};
+            }) : null);
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                for (int i = 0; i < chunk.size; i++) {
+                    if (!chunk.valid[i]) {
+                        continue;
+                    }
+                    byte[][] hashed = hashes.get(i).get();
+                    stmt.setString(1, chunk.accountNos[i]);
+                    stmt.setBytes(2, hashed[0]);
+                    stmt.setBytes(3, hashed[1]);
+                    Money.bind(stmt, 4, chunk.balances[i]);
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+
+                int inserted = 0;
+                for (int count : counts) {
+                    // Rewritten batches report SUCCESS_NO_INFO; duplicates then cannot be told apart
+                    if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                        inserted++;
+                    }
+                }
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (ExecutionException e) {
+            throw new SQLException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private static boolean isHeader(String line, boolean json) {
+        return !json && line.regionMatches(true, 0, "accountNo", 0, "accountNo".length());
+    }
+
+    // accountNo,password,balance with optional RFC 4180 quoting
+    static String[] parseCsvFields(String line) {
+        String[] fields = new String[3];
+        StringBuilder field = new StringBuilder();
+        int index = 0;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                if (index == fields.length - 1) {
+                    return null;
+                }
+                fields[index++] = field.toString();
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted || index != fields.length - 1) {
+            return null;
+        }
+        fields[index] = field.toString();
+        return fields;
+    }
+
+    // Flat object with "accountNo", "password" and "balance" members; balance may be a string or number
+    static String[] parseJsonFields(String line) {
+        String[] fields = new String[3];
+        int[] pos = {skipWhitespace(line, 0)};
+        if (pos[0] >= line.length() || line.charAt(pos[0]++) != '{') {
+            return null;
+        }
+        while (true) {
+            pos[0] = skipWhitespace(line, pos[0]);
+            if (pos[0] < line.length() && line.charAt(pos[0]) == '}') {
+                return fields;
+            }
+            String key = readJsonString(line, pos);
+            pos[0] = skipWhitespace(line, pos[0]);
+            if (key == null || pos[0] >= line.length() || line.charAt(pos[0]++) != ':') {
+                return null;
+            }
+            pos[0] = skipWhitespace(line, pos[0]);
+            String value;
+            if (pos[0] < line.length() && line.charAt(pos[0]) == '"') {
+                value = readJsonString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+            }
+            if (value == null) {
+                return null;
+            }
+            switch (key) {
+                case "accountNo" -> fields[0] = value;
+                case "password" -> fields[1] = value;
+                case "balance" -> fields[2] = value;
+                default -> { }
+            }
+            pos[0] = skipWhitespace(line, pos[0]);
+            if (pos[0] < line.length() && line.charAt(pos[0]) == ',') {
+                pos[0]++;
+            } else if (pos[0] >= line.length() || line.charAt(pos[0]) != '}') {
+                return null;
+            }
+        }
+    }
+
+    private static String readJsonString(String line, int[] pos) {
+        if (pos[0] >= line.length() || line.charAt(pos[0]) != '"') {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = pos[0] + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                pos[0] = i + 1;
+                return sb.toString();
+            }
+            if (c == '\\') {
+                if (++i >= line.length()) {
+                    return null;
+                }
+                char escaped = line.charAt(i);
+                switch (escaped) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'r' -> sb.append('\r');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (i + 4 >= line.length()) {
+                            return null;
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException e) {
+                            return null;
+                        }
+                        i += 4;
+                    }
+                    default -> sb.append(escaped);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static long readCheckpoint(Path checkpoint) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpoint).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt checkpoint file " + checkpoint, e);
+        }
+    }
+
+    private static void writeCheckpoint(Path checkpoint, long lineNumber) throws IOException {
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(lineNumber));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,320 @@
+package com.example;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+
+    private static final long DEFAULT_BORROW_TIMEOUT_MILLIS = 5000;
+    private static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long DEFAULT_LEAK_THRESHOLD_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    // Connections handed back this recently are assumed alive and skip the isValid() round trip
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    // Filling in a stack trace on every borrow is too slow for the hot path, so by default a
+    // leak is reported with the holding thread's stack at the time it is detected
+    private static final boolean TRACE_BORROWS = Boolean.getBoolean("bank.pool.traceBorrows");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder destroyed = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, DEFAULT_BORROW_TIMEOUT_MILLIS,
+                DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_LEAK_THRESHOLD_MILLIS);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long leakThresholdMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep, HOUSEKEEPING_INTERVAL_MILLIS,
+                HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLTimeoutException("Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                created.increment();
+            }
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrower = Thread.currentThread();
+            pooled.borrowSite = leakThresholdMillis > 0 && TRACE_BORROWS ? new Exception("Connection borrowed here")
+                    : null;
+            pooled.leakReported = false;
+            active.add(pooled);
+            borrowWait.recordSince(start);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pooled.lastReturnedAt < VALIDATION_BYPASS_MILLIS
+                    || isValid(pooled.physical)) {
+                return pooled;
+            }
+            validationFailures.increment();
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    private static boolean isValid(Connection conn) {
+        try {
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean broken) {
+        active.remove(pooled);
+        pooled.borrower = null;
+        pooled.borrowSite = null;
+        if (!broken) {
+            try {
+                if (!pooled.physical.getAutoCommit()) {
+                    pooled.physical.rollback();
+                    pooled.physical.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+        if (broken || closed) {
+            destroy(pooled);
+        } else {
+            pooled.lastReturnedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyed.increment();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > idleTimeoutMillis && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        if (leakThresholdMillis > 0) {
+            for (PooledConnection pooled : active) {
+                Thread borrower = pooled.borrower;
+                if (!pooled.leakReported && borrower != null && now - pooled.borrowedAt > leakThresholdMillis) {
+                    pooled.leakReported = true;
+                    leaksDetected.increment();
+                    Exception site = pooled.borrowSite;
+                    if (site == null) {
+                        site = new Exception("Connection held by " + borrower + ", now here");
+                        site.setStackTrace(borrower.getStackTrace());
+                    }
+                    logger.log(Level.WARNING, "Possible connection leak: held for "
+                            + (now - pooled.borrowedAt) + " ms", site);
+                }
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public LatencyHistogram getBorrowWait() {
+        return borrowWait;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d waiting=%d max=%d created=%d destroyed=%d "
+                        + "validationFailures=%d timeouts=%d leaks=%d borrowWait[%s]",
+                getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, created.sum(),
+                destroyed.sum(), validationFailures.sum(), borrowTimeouts.sum(), leaksDetected.sum(),
+                borrowWait);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long borrowedAt;
+        volatile long lastReturnedAt;
+        volatile Thread borrower;
+        volatile Exception borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new Handle(this));
+        }
+    }
+
+    // Handed to callers so that close() returns the connection to the pool instead of closing it
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+        private boolean broken;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(pooled, broken);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.physical.isClosed();
+                }
+                case "unwrap", "isWrapperFor" -> {
+                    return method.invoke(pooled.physical, args);
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pooled.physical + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException sqlException && isFatal(sqlException)) {
+                    broken = true;
+                }
+                throw cause;
+            }
+        }
+
+        private boolean isFatal(SQLException e) {
+            String state = e.getSQLState();
+            // SQLSTATE class 08 means the connection itself is gone
+            return state != null && state.startsWith("08");
+        }
+    }
+}
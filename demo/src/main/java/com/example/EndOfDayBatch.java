@@ -0,0 +1,446 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Nightly interest accrual and fee run over the customers table. The table is split into
+// key ranges of roughly equal row counts, and the ranges are worked through in parallel on a
+// ForkJoinPool. Each worker streams its range through a server-side cursor, which takes no
+// locks. For every chunk of rows it computes the postings from the streamed balances, then
+// writes them in one short transaction: lock the chunk's rows, apply the postings to the
+// current balances, batch the UPDATEs, journal, cache and commit, as TransferEngine does.
+// Online traffic only ever waits on one chunk's rows, never on the table.
+//
+// The ranges and each range's last committed account are kept in eod_checkpoints, updated in
+// the same transaction as the balances. A rerun for the same date resumes where the previous
+// one stopped and never posts an account twice.
+public class EndOfDayBatch {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_PARTITIONS = 256;
+    private static final long PROGRESS_INTERVAL_NANOS = 2_000_000_000L;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final String CHECKPOINT_DDL = "CREATE TABLE IF NOT EXISTS eod_checkpoints ("
+            + "runDate DATE NOT NULL, partitionNo INT NOT NULL, lowKey VARCHAR(16) NULL, highKey VARCHAR(16) NULL, "
+            + "lastKey VARCHAR(16) NULL, rowsDone BIGINT NOT NULL DEFAULT 0, done BOOLEAN NOT NULL DEFAULT FALSE, "
+            + "PRIMARY KEY (runDate, partitionNo))";
+    private static final String CHECKPOINTS_SQL = "SELECT partitionNo, lowKey, highKey, lastKey, done "
+            + "FROM eod_checkpoints WHERE runDate = ? ORDER BY partitionNo";
+    private static final String INSERT_CHECKPOINT_SQL =
+            "INSERT INTO eod_checkpoints (runDate, partitionNo, lowKey, highKey) VALUES (?, ?, ?, ?)";
+    private static final String ADVANCE_CHECKPOINT_SQL = "UPDATE eod_checkpoints SET lastKey = ?, "
+            + "rowsDone = rowsDone + ? WHERE runDate = ? AND partitionNo = ?";
+    private static final String FINISH_CHECKPOINT_SQL =
+            "UPDATE eod_checkpoints SET done = TRUE WHERE runDate = ? AND partitionNo = ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM customers";
+    private static final String KEYS_SQL = "SELECT accountNo FROM customers ORDER BY accountNo";
+    private static final String LOCK_SQL = "SELECT accountNo, " + Money.select("balance")
+            + " FROM customers WHERE accountNo >= ? AND accountNo <= ? FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE customers SET balance = " + Money.BIND_PARAM + " WHERE accountNo = ?";
+
+    private static final Logger logger = Logger.getLogger(EndOfDayBatch.class.getName());
+
+    // Interest is quoted per year in basis points and accrued daily (actual/actual). The fee,
+    // if any, is charged every run to accounts that started the day below feeWaivedFrom, and
+    // never takes a balance below zero.
+    public record Rates(int annualInterestBasisPoints, long dailyFee, long feeWaivedFrom) {}
+
+    public record Stats(long accounts, long interestPostings, long interestPaid, long feePostings,
+                        long feesCharged, long elapsedNanos) {
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : accounts * 1e9 / elapsedNanos;
+        }
+    }
+
+    // lowKey is exclusive, highKey inclusive; null means unbounded
+    private record Partition(int number, String lowKey, String highKey, String lastKey, boolean done) {}
+
+    private final ConnectionPool pool;
+    private final BalanceCache cache;
+    private final TransactionJournal journal;
+    private final Rates rates;
+    private final int threads;
+    private final int partitions;
+    private final int chunkSize;
+    private final PrintWriter progress;
+
+    private final LongAdder accounts = new LongAdder();
+    private final LongAdder interestPostings = new LongAdder();
+    private final LongAdder interestPaid = new LongAdder();
+    private final LongAdder feePostings = new LongAdder();
+    private final LongAdder feesCharged = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    // Each worker holds two connections from the pool: its cursor and its chunk transactions
+    public EndOfDayBatch(JdbcAccountStore store, Rates rates, int threads, int partitions, int chunkSize,
+                         PrintWriter progress) {
+        this.pool = store.getPool();
+        this.cache = store.getCache();
+        this.journal = store.getJournal();
+        this.rates = rates;
+        this.threads = threads;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.progress = progress;
+    }
+
+    public Stats run(LocalDate runDate) throws SQLException, InterruptedException {
+        long start = System.nanoTime();
+        List<Partition> pending = new ArrayList<>();
+        for (Partition partition : partitionsFor(runDate)) {
+            if (!partition.done()) {
+                pending.add(partition);
+            }
+        }
+        if (pending.isEmpty()) {
+            progress.println("End-of-day run for " + runDate + " already completed");
+            return stats(System.nanoTime() - start);
+        }
+        progress.printf("End-of-day run for %s: %d key ranges on %d threads%n", runDate, pending.size(), threads);
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ForkJoinPool workers = new ForkJoinPool(threads);
+        try {
+            ForkJoinTask<Void> task = workers.submit(
+                    new PartitionTask(pending, 0, pending.size(), runDate, runDate.lengthOfYear(), failure));
+            while (true) {
+                try {
+                    task.get(PROGRESS_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    report(stats(System.nanoTime() - start));
+                } catch (ExecutionException e) {
+                    throw new SQLException("End-of-day worker failed", e.getCause());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        Stats stats = stats(System.nanoTime() - start);
+        report(stats);
+        if (failure.get() != null) {
+            // The other ranges finished; a rerun picks up only what is left
+            throw failure.get() instanceof SQLException e ? e
+                    : new SQLException("End-of-day run incomplete", failure.get());
+        }
+        return stats;
+    }
+
+    private Stats stats(long elapsedNanos) {
+        return new Stats(accounts.sum(), interestPostings.sum(), interestPaid.sum(), feePostings.sum(),
+                feesCharged.sum(), elapsedNanos);
+    }
+
+    private void report(Stats stats) {
+        progress.printf("accounts=%d interest=%d (%s) fees=%d (%s) retries=%d (%.0f rows/s)%n", stats.accounts(),
+                stats.interestPostings(), Money.format(stats.interestPaid()), stats.feePostings(),
+                Money.format(stats.feesCharged()), retries.sum(), stats.rowsPerSecond());
+        progress.flush();
+    }
+
+    // Splits the ranges in halves until one is left, so idle workers steal whole ranges
+    @SuppressWarnings("serial") // never serialized
+    private final class PartitionTask extends RecursiveAction {
+        private final List<Partition> pending;
+        private final int from;
+        private final int to;
+        private final LocalDate runDate;
+        private final int daysInYear;
+        private final AtomicReference<Exception> failure;
+
+        PartitionTask(List<Partition> pending, int from, int to, LocalDate runDate, int daysInYear,
+                      AtomicReference<Exception> failure) {
+            this.pending = pending;
+            this.from = from;
+            this.to = to;
+            this.runDate = runDate;
+            this.daysInYear = daysInYear;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PartitionTask(pending, from, mid, runDate, daysInYear, failure),
+                        new PartitionTask(pending, mid, to, runDate, daysInYear, failure));
+                return;
+            }
+            Partition partition = pending.get(from);
+            try {
+                runPartition(partition, runDate, daysInYear);
+            } catch (SQLException | RuntimeException e) {
+                logger.log(Level.SEVERE, "End-of-day range " + partition.number() + " failed", e);
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    // Existing ranges for runDate, or new ones cut at every (rows / partitions)th account number
+    private List<Partition> partitionsFor(LocalDate runDate) throws SQLException {
+        Date date = Date.valueOf(runDate);
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CHECKPOINT_DDL);
+            }
+            List<Partition> existing = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(CHECKPOINTS_SQL)) {
+                stmt.setDate(1, date);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(new Partition(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                                rs.getBoolean(5)));
+                    }
+                }
+            }
+            if (!existing.isEmpty()) {
+                return existing;
+            }
+        }
+
+        List<String> bounds = boundaries();
+        List<Partition> created = new ArrayList<>();
+        for (int i = 0; i <= bounds.size(); i++) {
+            created.add(new Partition(i, i == 0 ? null : bounds.get(i - 1), i == bounds.size() ? null : bounds.get(i),
+                    null, false));
+        }
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(INSERT_CHECKPOINT_SQL)) {
+                for (Partition partition : created) {
+                    stmt.setDate(1, date);
+                    stmt.setInt(2, partition.number());
+                    stmt.setString(3, partition.lowKey());
+                    stmt.setString(4, partition.highKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return created;
+    }
+
+    // One pass over the primary key index; Integer.MIN_VALUE makes Connector/J stream the rows
+    private List<String> boundaries() throws SQLException {
+        List<String> bounds = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            long rows;
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(COUNT_SQL)) {
+                rs.next();
+                rows = rs.getLong(1);
+            }
+            long step = Math.max(1, (rows + partitions - 1) / partitions);
+            try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+                try (ResultSet rs = stmt.executeQuery(KEYS_SQL)) {
+                    for (long row = 1; rs.next(); row++) {
+                        if (row % step == 0 && row < rows) {
+                            bounds.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        }
+        return bounds;
+    }
+
+    private void runPartition(Partition partition, LocalDate runDate, int daysInYear) throws SQLException {
+        String after = partition.lastKey() != null ? partition.lastKey() : partition.lowKey();
+        StringBuilder sql = new StringBuilder("SELECT accountNo, ").append(Money.select("balance"))
+                .append(" FROM customers WHERE 1 = 1");
+        if (after != null) {
+            sql.append(" AND accountNo > ?");
+        }
+        if (partition.highKey() != null) {
+            sql.append(" AND accountNo <= ?");
+        }
+        sql.append(" ORDER BY accountNo");
+
+        String[] accountNos = new String[chunkSize];
+        long[] balances = new long[chunkSize];
+        int size = 0;
+        try (Connection cursor = pool.getConnection();
+             Connection writer = pool.getConnection();
+             PreparedStatement stmt = cursor.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                     ResultSet.CONCUR_READ_ONLY)) {
+            writer.setAutoCommit(false);
+            int index = 1;
+            if (after != null) {
+                stmt.setString(index++, after);
+            }
+            if (partition.highKey() != null) {
+                stmt.setString(index, partition.highKey());
+            }
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accountNos[size] = rs.getString(1);
+                    balances[size] = Money.read(rs, 2);
+                    if (++size == chunkSize) {
+                        writeChunk(writer, runDate, daysInYear, partition.number(), accountNos, balances, size);
+                        size = 0;
+                    }
+                }
+            }
+            if (size > 0) {
+                writeChunk(writer, runDate, daysInYear, partition.number(), accountNos, balances, size);
+            }
+            try (PreparedStatement finish = writer.prepareStatement(FINISH_CHECKPOINT_SQL)) {
+                finish.setDate(1, Date.valueOf(runDate));
+                finish.setInt(2, partition.number());
+                finish.executeUpdate();
+                writer.commit();
+            }
+        }
+    }
+
+    private void writeChunk(Connection conn, LocalDate runDate, int daysInYear, int partitionNo, String[] accountNos,
+                            long[] startOfDay, int size) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                attemptChunk(conn, runDate, daysInYear, partitionNo, accountNos, startOfDay, size);
+                return;
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !TransactionEngine.isRetryable(e)) {
+                    throw e;
+                }
+                retries.increment();
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(BASE_BACKOFF_NANOS << attempt));
+            }
+        }
+    }
+
+    // The accruals are computed from the streamed balances; the postings are applied to the
+    // balances locked here, so deposits and withdrawals made since the cursor read are kept
+    private void attemptChunk(Connection conn, LocalDate runDate, int daysInYear, int partitionNo,
+                              String[] accountNos, long[] startOfDay, int size) throws SQLException {
+        List<TransferEngine.Posting> journaled = new ArrayList<>();
+        Map<String, Long> current = new HashMap<>();
+        try {
+            try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+                stmt.setString(1, accountNos[0]);
+                stmt.setString(2, accountNos[size - 1]);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        current.put(rs.getString(1), Money.read(rs, 2));
+                    }
+                }
+            }
+
+            List<TransferEngine.Posting> postings = new ArrayList<>();
+            Map<String, Long> updated = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Long locked = current.get(accountNos[i]);
+                if (locked == null) {
+                    continue; // removed since the cursor read it
+                }
+                long balance = locked;
+                long interest = dailyInterest(startOfDay[i], rates.annualInterestBasisPoints(), daysInYear);
+                if (interest > 0) {
+                    balance = Money.add(balance, interest);
+                    postings.add(new TransferEngine.Posting(accountNos[i], interest, balance,
+                            TransactionJournal.EntryType.INTEREST));
+                }
+                long fee = startOfDay[i] < rates.feeWaivedFrom() ? Math.min(rates.dailyFee(), balance) : 0;
+                if (fee > 0) {
+                    balance = Money.subtract(balance, fee);
+                    postings.add(new TransferEngine.Posting(accountNos[i], -fee, balance,
+                            TransactionJournal.EntryType.FEE));
+                }
+                if (balance != locked) {
+                    updated.put(accountNos[i], balance);
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+                for (Map.Entry<String, Long> balance : updated.entrySet()) {
+                    Money.bind(stmt, 1, balance.getValue());
+                    stmt.setString(2, balance.getKey());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(ADVANCE_CHECKPOINT_SQL)) {
+                stmt.setString(1, accountNos[size - 1]);
+                stmt.setLong(2, size);
+                stmt.setDate(3, Date.valueOf(runDate));
+                stmt.setInt(4, partitionNo);
+                stmt.executeUpdate();
+            }
+            for (TransferEngine.Posting posting : postings) {
+                journal.append(posting.accountNo(), posting.delta(), posting.balanceAfter(), posting.type());
+                journaled.add(posting);
+            }
+            journal.sync();
+            updated.forEach(cache::put);
+            conn.commit();
+
+            accounts.add(size);
+            for (TransferEngine.Posting posting : postings) {
+                if (posting.type() == TransactionJournal.EntryType.INTEREST) {
+                    interestPostings.increment();
+                    interestPaid.add(posting.delta());
+                } else {
+                    feePostings.increment();
+                    feesCharged.add(-posting.delta());
+                }
+            }
+        } catch (SQLException | IOException e) {
+            current.keySet().forEach(cache::invalidate);
+            conn.rollback();
+            for (int i = journaled.size() - 1; i >= 0; i--) {
+                TransferEngine.Posting posting = journaled.get(i);
+                TransactionEngine.reverse(journal, posting.accountNo(), posting.delta(),
+                        posting.balanceAfter() - posting.delta());
+            }
+            throw e instanceof SQLException sqlException ? sqlException
+                    : new SQLException("Transaction journal write failed", e);
+        }
+    }
+
+    // One day's interest in cents on a start-of-day balance, rounded half-even; nothing on
+    // zero or negative balances
+    static long dailyInterest(long balance, int annualBasisPoints, int daysInYear) {
+        if (balance <= 0 || annualBasisPoints <= 0) {
+            return 0;
+        }
+        long numerator = Math.multiplyExact(balance, annualBasisPoints);
+        long denominator = 10_000L * daysInYear;
+        long quotient = numerator / denominator;
+        long twiceRemainder = 2 * (numerator % denominator);
+        if (twiceRemainder > denominator || (twiceRemainder == denominator && (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return quotient;
+    }
+}
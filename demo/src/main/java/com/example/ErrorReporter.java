@@ -0,0 +1,186 @@
+package com.example;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Takes error logging off the request path. report() never blocks and never does I/O: repeats
+// of an error already logged in the current window (same exception type thrown from the same
+// place) are only counted, and the rest go into a bounded lock-free ring buffer that a single
+// background thread drains into java.util.logging. When the ring is full the report is
+// dropped and counted, so an incident cannot amplify itself through logging.
+public class ErrorReporter implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MAX_SIGNATURES = 4096;
+
+    private static final Logger logger = Logger.getLogger(ErrorReporter.class.getName());
+    private static final ErrorReporter global = new ErrorReporter(DEFAULT_CAPACITY);
+
+    private record Report(Throwable error, String context, long suppressedBefore) {}
+
+    private static final class Signature {
+        final AtomicLong windowStart = new AtomicLong(Long.MIN_VALUE);
+        final LongAdder suppressed = new LongAdder();
+    }
+
+    // Bounded multi-producer ring (Vyukov style): slot i is free for ticket t when
+    // sequences[i] == t and holds a published report when sequences[i] == t + 1
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // writer thread only
+
+    private final Map<String, Signature> signatures = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder reported = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public static ErrorReporter global() {
+        return global;
+    }
+
+    public ErrorReporter(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.writer = new Thread(this::drain, "error-reporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void report(Throwable error, String context) {
+        reported.increment();
+        long suppressedBefore = 0;
+        Signature signature = signatureOf(error);
+        if (signature != null) {
+            long now = System.nanoTime();
+            long windowStart = signature.windowStart.get();
+            if (windowStart != Long.MIN_VALUE && now - windowStart < WINDOW_NANOS
+                    || !signature.windowStart.compareAndSet(windowStart, now)) {
+                signature.suppressed.increment();
+                suppressed.increment();
+                return;
+            }
+            suppressedBefore = signature.suppressed.sumThenReset();
+        }
+        if (!offer(new Report(error, context, suppressedBefore))) {
+            dropped.increment();
+        }
+    }
+
+    private Signature signatureOf(Throwable error) {
+        StackTraceElement[] trace = error.getStackTrace();
+        String key = trace.length == 0 ? error.getClass().getName()
+                : error.getClass().getName() + '@' + trace[0];
+        Signature signature = signatures.get(key);
+        if (signature == null && signatures.size() < MAX_SIGNATURES) {
+            signature = signatures.computeIfAbsent(key, k -> new Signature());
+        }
+        return signature; // null once the table is full: reported without deduplication
+    }
+
+    private boolean offer(Report report) {
+        while (true) {
+            long ticket = tail.get();
+            int index = (int) ticket & mask;
+            long sequence = sequences.get(index);
+            if (sequence == ticket) {
+                if (tail.compareAndSet(ticket, ticket + 1)) {
+                    slots[index] = report;
+                    sequences.set(index, ticket + 1);
+                    return true;
+                }
+            } else if (sequence < ticket) {
+                return false; // the writer has not freed this slot yet: full
+            }
+        }
+    }
+
+    private Report poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Report report = (Report) slots[index];
+        slots[index] = null;
+        sequences.set(index, head + slots.length);
+        head++;
+        return report;
+    }
+
+    private void drain() {
+        long lastSummary = System.nanoTime();
+        while (running || sequences.get((int) head & mask) == head + 1) {
+            Report report = poll();
+            if (report != null) {
+                write(report);
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+            if (System.nanoTime() - lastSummary >= WINDOW_NANOS) {
+                summarizeSuppressed();
+                lastSummary = System.nanoTime();
+            }
+        }
+        summarizeSuppressed();
+    }
+
+    private void write(Report report) {
+        String message = report.suppressedBefore() == 0 ? report.context()
+                : report.context() + " (" + report.suppressedBefore() + " similar errors suppressed since last logged)";
+        logger.log(Level.SEVERE, message, report.error());
+        written.increment();
+    }
+
+    private void summarizeSuppressed() {
+        signatures.forEach((key, signature) -> {
+            long count = signature.suppressed.sum();
+            if (count > 0 && System.nanoTime() - signature.windowStart.get() >= WINDOW_NANOS) {
+                logger.log(Level.SEVERE, "Suppressed " + signature.suppressed.sumThenReset() + " repeats of " + key);
+            }
+        });
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("reported=%d written=%d suppressed=%d dropped=%d pending=%d", reported.sum(),
+                written.sum(), suppressed.sum(), dropped.sum(), tail.get() - head);
+    }
+
+    // Stops the writer once everything already queued has been written
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
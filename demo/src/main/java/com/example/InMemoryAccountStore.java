@@ -0,0 +1,687 @@
+package com.example;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Embedded account store. Accounts live in lock-striped open-addressing tables keyed by the
+// packed account number; a stripe's StampedLock serialises changes to its accounts while
+// balance reads stay optimistic. Changes are journaled (when a journal is given) and synced
+// before their stripe lock is released, so nothing reads or snapshots a change that might not
+// survive. If the sync fails the change is not applied and its records are reversed, as
+// TransactionEngine does when a commit fails. With a snapshot file, creations and removals also go to an account log
+// beside it, since journal records have no room for credentials. A snapshot records how far
+// into the journal and the account log it reaches; on start the store loads it and replays
+// both from there, so changes acknowledged since the last snapshot survive a crash.
+// Transfers write-lock every stripe they touch in ascending stripe order, so they cannot deadlock.
+public final class InMemoryAccountStore implements AccountStore {
+    private static final int STRIPES = 256;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+    private static final int SNAPSHOT_MAGIC_V1 = 0x42414e4b; // "BANK", no replay positions
+    private static final int SNAPSHOT_MAGIC = 0x424e4b32; // "BNK2"
+    private static final byte LOG_CREATE = 1;
+    private static final byte LOG_REMOVE = 2;
+    private static final long EMPTY = 0;
+
+    private static final Logger logger = Logger.getLogger(InMemoryAccountStore.class.getName());
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final TransactionJournal journal;
+    private final Path snapshotFile;
+    private final FileChannel accountLog;
+    private final ScheduledExecutorService snapshotter;
+
+    public InMemoryAccountStore() {
+        this(null, null, 0);
+    }
+
+    // journal and snapshotFile may be null; snapshotSeconds <= 0 snapshots only on close().
+    // The journal must be this store's alone: every record in it is replayed on start.
+    public InMemoryAccountStore(TransactionJournal journal, Path snapshotFile, long snapshotSeconds) {
+        this.journal = journal;
+        this.snapshotFile = snapshotFile;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        if (snapshotFile != null) {
+            long[] positions = Files.exists(snapshotFile) ? load(snapshotFile) : new long[2];
+            accountLog = openAccountLog(accountLogPath(snapshotFile), positions[1]);
+            if (journal != null) {
+                journal.replay(positions[0] + 1, this::replayBalance);
+            }
+        } else {
+            accountLog = null;
+        }
+        if (snapshotFile != null && snapshotSeconds > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "account-store-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotSeconds, snapshotSeconds,
+                    TimeUnit.SECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+
+    @Override
+    public boolean create(String accountNo, byte[] password, byte[] salt, long openingBalance) throws SQLException {
+        long key = keyOf(accountNo);
+        Stripe stripe = stripeFor(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            if (stripe.slotOf(key) >= 0) {
+                return false;
+            }
+            journal(accountNo, openingBalance, openingBalance, TransactionJournal.EntryType.OPENING);
+            try {
+                logAccount(LOG_CREATE, key, password, salt);
+                sync();
+                syncAccountLog();
+            } catch (SQLException e) {
+                reverse(accountNo, openingBalance, 0);
+                unlogCreate(key);
+                throw e;
+            }
+            stripe.insert(key, openingBalance, password.clone(), salt.clone());
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    @Override
+    public Credentials findCredentials(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return null;
+        }
+        Stripe stripe = stripeFor(key);
+        long stamp = stripe.lock.readLock();
+        try {
+            int slot = stripe.slotOf(key);
+            return slot < 0 ? null : new Credentials(stripe.passwords[slot].clone(), stripe.salts[slot].clone());
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public long getBalance(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return NO_ACCOUNT;
+        }
+        Stripe stripe = stripeFor(key);
+        long stamp = stripe.lock.tryOptimisticRead();
+        long balance = stripe.balanceOf(key);
+        if (!stripe.lock.validate(stamp)) {
+            stamp = stripe.lock.readLock();
+            try {
+                balance = stripe.balanceOf(key);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return balance;
+    }
+
+    @Override
+    public TransactionEngine.Result updateBalance(String accountNo, long amount, boolean isDeposit)
+            throws SQLException {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return new TransactionEngine.Result(TransactionEngine.Status.ACCOUNT_NOT_FOUND, 0);
+        }
+        Stripe stripe = stripeFor(key);
+        TransactionEngine.Result result;
+        long stamp = stripe.lock.writeLock();
+        try {
+            int slot = stripe.slotOf(key);
+            if (slot < 0) {
+                return new TransactionEngine.Result(TransactionEngine.Status.ACCOUNT_NOT_FOUND, 0);
+            }
+            long balance = stripe.balances[slot];
+            if (!isDeposit && balance < amount) {
+                return new TransactionEngine.Result(TransactionEngine.Status.INSUFFICIENT_FUNDS, balance);
+            }
+            long updated = isDeposit ? Money.add(balance, amount) : Money.subtract(balance, amount);
+            long delta = isDeposit ? amount : -amount;
+            journal(accountNo, delta, updated, isDeposit
+                    ? TransactionJournal.EntryType.DEPOSIT : TransactionJournal.EntryType.WITHDRAWAL);
+            // Updates under other stripes still share the flush
+            try {
+                sync();
+            } catch (SQLException e) {
+                reverse(accountNo, delta, balance);
+                throw e;
+            }
+            stripe.balances[slot] = updated;
+            result = new TransactionEngine.Result(TransactionEngine.Status.SUCCESS, updated);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        return result;
+    }
+
+    @Override
+    public TransferResult transfer(List<Transfer> legs) throws SQLException {
+        List<String> accounts = TransferEngine.lockOrder(legs);
+        boolean[] touched = new boolean[STRIPES];
+        for (String accountNo : accounts) {
+            long key = AccountNumbers.pack(accountNo);
+            if (key != AccountNumbers.INVALID) {
+                touched[stripeIndex(key)] = true;
+            }
+        }
+
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            if (touched[i]) {
+                stamps[i] = stripes[i].lock.writeLock();
+            }
+        }
+        TransferResult result;
+        try {
+            Map<String, Long> balances = new HashMap<>();
+            for (String accountNo : accounts) {
+                long key = AccountNumbers.pack(accountNo);
+                long balance = key == AccountNumbers.INVALID ? NO_ACCOUNT : stripeFor(key).balanceOf(key);
+                if (balance != NO_ACCOUNT) {
+                    balances.put(accountNo, balance);
+                }
+            }
+            List<TransferEngine.Posting> postings = new ArrayList<>();
+            result = TransferEngine.apply(legs, balances, postings);
+            if (result.status() != TransactionEngine.Status.SUCCESS) {
+                return result;
+            }
+            int journaled = 0;
+            try {
+                for (TransferEngine.Posting posting : postings) {
+                    journal(posting.accountNo(), posting.delta(), posting.balanceAfter(), posting.type());
+                    journaled++;
+                }
+                sync();
+            } catch (SQLException e) {
+                for (int j = journaled - 1; j >= 0; j--) {
+                    TransferEngine.Posting done = postings.get(j);
+                    reverse(done.accountNo(), done.delta(), done.balanceAfter() - done.delta());
+                }
+                throw e;
+            }
+            balances.forEach((accountNo, balance) -> {
+                long key = AccountNumbers.pack(accountNo);
+                Stripe stripe = stripeFor(key);
+                stripe.balances[stripe.slotOf(key)] = balance;
+            });
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                if (touched[i]) {
+                    stripes[i].lock.unlockWrite(stamps[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean remove(String accountNo) throws SQLException {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return false;
+        }
+        Stripe stripe = stripeFor(key);
+        long stamp = stripe.lock.writeLock();
+        try {
+            int slot = stripe.slotOf(key);
+            if (slot < 0) {
+                return false;
+            }
+            logAccount(LOG_REMOVE, key, null, null);
+            try {
+                syncAccountLog();
+            } catch (SQLException e) {
+                relogCreate(key, stripe.passwords[slot], stripe.salts[slot]);
+                throw e;
+            }
+            stripe.remove(key);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        return true;
+    }
+
+    // Each stripe's keys are copied under its read lock; action runs without any lock held
+    @Override
+    public void forEachAccount(Consumer<String> action) {
+        for (Stripe stripe : stripes) {
+            long[] keys;
+            long stamp = stripe.lock.readLock();
+            try {
+                keys = stripe.keys.clone();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    action.accept(AccountNumbers.unpack(key));
+                }
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    // Writes every account to the snapshot file. Every stripe is read-locked at once, in the
+    // ascending order transfers use, so the copy is one point in time even across a transfer's
+    // two stripes; the file is written after the locks are released.
+    public void snapshot() throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        long[][] keys = new long[STRIPES][];
+        long[][] balances = new long[STRIPES][];
+        byte[][][] passwords = new byte[STRIPES][][];
+        byte[][][] salts = new byte[STRIPES][][];
+        long journalSeq;
+        long accountLogSize;
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stamps[i] = stripes[i].lock.readLock();
+        }
+        try {
+            // No change is in flight, so these are exactly the positions the copy reflects
+            journalSeq = journal == null ? 0 : journal.getLastSeq();
+            accountLogSize = accountLog.size();
+            for (int i = 0; i < STRIPES; i++) {
+                keys[i] = stripes[i].keys.clone();
+                balances[i] = stripes[i].balances.clone();
+                passwords[i] = stripes[i].passwords.clone();
+                salts[i] = stripes[i].salts.clone();
+            }
+        } finally {
+            for (int i = STRIPES - 1; i >= 0; i--) {
+                stripes[i].lock.unlockRead(stamps[i]);
+            }
+        }
+
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(journalSeq);
+            out.writeLong(accountLogSize);
+            for (int s = 0; s < STRIPES; s++) {
+                for (int i = 0; i < keys[s].length; i++) {
+                    if (keys[s][i] != EMPTY) {
+                        out.writeLong(keys[s][i]);
+                        out.writeLong(balances[s][i]);
+                        writeBytes(out, passwords[s][i]);
+                        writeBytes(out, salts[s][i]);
+                    }
+                }
+            }
+            out.writeLong(EMPTY);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Returns the journal sequence number and account log size the snapshot reaches
+    private long[] load(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_V1) {
+                throw new IOException("Not an account store snapshot: " + file);
+            }
+            // Replaying from the start is safe for an old snapshot: records carry the balance after
+            long[] positions = magic == SNAPSHOT_MAGIC ? new long[] {in.readLong(), in.readLong()} : new long[2];
+            for (long key = in.readLong(); key != EMPTY; key = in.readLong()) {
+                long balance = in.readLong();
+                stripeFor(key).insert(key, balance, readBytes(in), readBytes(in));
+            }
+            return positions;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load account store snapshot", e);
+        }
+    }
+
+    // Applies the account log from the snapshot's position on, drops a record torn by a crash
+    // (it was never acknowledged) and opens the log for appending
+    private FileChannel openAccountLog(Path file, long from) {
+        try {
+            long valid = from;
+            if (Files.exists(file)) {
+                if (Files.size(file) < from) {
+                    throw new IOException("Account log is shorter than the snapshot it belongs to: " + file);
+                }
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                    in.skipNBytes(from);
+                    while (true) {
+                        int op = in.read();
+                        if (op < 0) {
+                            break;
+                        }
+                        long key = in.readLong();
+                        Stripe stripe = stripeFor(key);
+                        if (op == LOG_CREATE) {
+                            byte[] password = readBytes(in);
+                            byte[] salt = readBytes(in);
+                            if (stripe.slotOf(key) < 0) {
+                                stripe.insert(key, 0, password, salt); // the journal has its balance
+                            }
+                            valid += 1 + 8 + 2 + password.length + 2 + salt.length;
+                        } else if (op == LOG_REMOVE) {
+                            stripe.remove(key);
+                            valid += 1 + 8;
+                        } else {
+                            throw new EOFException("Unknown record type " + op); // garbage past the last write
+                        }
+                    }
+                } catch (EOFException e) {
+                    logger.warning("Discarding torn account log tail at byte " + valid + ": " + e.getMessage());
+                }
+            } else if (from > 0) {
+                throw new IOException("Account log missing: " + file);
+            }
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            channel.truncate(valid);
+            return channel;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open account log", e);
+        }
+    }
+
+    private static Path accountLogPath(Path snapshotFile) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".accounts");
+    }
+
+    // Journal records carry the balance after the change, so the last one for an account wins
+    private void replayBalance(long seq, long timestamp, long accountKey, long amount, long balanceAfter,
+                               TransactionJournal.EntryType type) {
+        Stripe stripe = stripeFor(accountKey);
+        int slot = stripe.slotOf(accountKey);
+        if (slot >= 0) {
+            stripe.balances[slot] = balanceAfter;
+        }
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Account store snapshot failed", e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private void journal(String accountNo, long amount, long balanceAfter, TransactionJournal.EntryType type)
+            throws SQLException {
+        if (journal != null) {
+            try {
+                journal.append(accountNo, amount, balanceAfter, type);
+            } catch (IOException e) {
+                throw new SQLException("Transaction journal write failed", e);
+            }
+        }
+    }
+
+    // Called under the account's stripe lock, so log order matches the order of the changes
+    private void logAccount(byte op, long key, byte[] password, byte[] salt) throws SQLException {
+        if (accountLog == null) {
+            return;
+        }
+        int length = 1 + 8 + (op == LOG_CREATE ? 2 + password.length + 2 + salt.length : 0);
+        ByteBuffer record = ByteBuffer.allocate(length).put(op).putLong(key);
+        if (op == LOG_CREATE) {
+            record.putShort((short) password.length).put(password).putShort((short) salt.length).put(salt);
+        }
+        record.flip();
+        try {
+            while (record.hasRemaining()) {
+                accountLog.write(record);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Account log write failed", e);
+        }
+    }
+
+    // Compensations for a change whose sync failed. Best effort, like TransactionEngine.reverse():
+    // the caller is already failing, so these only log
+    private void reverse(String accountNo, long delta, long balanceAfter) {
+        if (journal != null) {
+            TransactionEngine.reverse(journal, accountNo, delta, balanceAfter);
+        }
+    }
+
+    private void unlogCreate(long key) {
+        try {
+            logAccount(LOG_REMOVE, key, null, null);
+            syncAccountLog();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not log removal of failed account creation", e);
+        }
+    }
+
+    private void relogCreate(long key, byte[] password, byte[] salt) {
+        try {
+            logAccount(LOG_CREATE, key, password, salt);
+            syncAccountLog();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Could not log account kept after a failed removal", e);
+        }
+    }
+
+    private void syncAccountLog() throws SQLException {
+        if (accountLog != null) {
+            try {
+                accountLog.force(false);
+            } catch (IOException e) {
+                throw new SQLException("Account log write failed", e);
+            }
+        }
+    }
+
+    private void sync() throws SQLException {
+        if (journal != null) {
+            try {
+                journal.sync();
+            } catch (IOException e) {
+                throw new SQLException("Transaction journal write failed", e);
+            }
+        }
+    }
+
+    private static long keyOf(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            throw new IllegalArgumentException("Invalid account number");
+        }
+        return key;
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[stripeIndex(key)];
+    }
+
+    private static int stripeIndex(long key) {
+        return (int) (AccountNumbers.mix(key) >>> 56) & (STRIPES - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "memory accounts=" + size();
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) {
+            snapshotter.shutdownNow();
+        }
+        snapshotQuietly();
+        if (accountLog != null) {
+            try {
+                accountLog.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not close account log", e);
+            }
+        }
+    }
+
+    // All array fields are replaced together under the write lock; optimistic readers that see
+    // a torn mix fail validation, and bounds are checked so they never throw first
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[INITIAL_STRIPE_CAPACITY];
+        private long[] balances = new long[INITIAL_STRIPE_CAPACITY];
+        private byte[][] passwords = new byte[INITIAL_STRIPE_CAPACITY][];
+        private byte[][] salts = new byte[INITIAL_STRIPE_CAPACITY][];
+        private volatile int size;
+
+        long balanceOf(long key) {
+            long[] k = keys;
+            long[] b = balances;
+            if (k.length != b.length) {
+                return NO_ACCOUNT;
+            }
+            int mask = k.length - 1;
+            for (int i = indexOf(key, mask), probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                if (k[i] == key) {
+                    return b[i];
+                }
+                if (k[i] == EMPTY) {
+                    return NO_ACCOUNT;
+                }
+            }
+            return NO_ACCOUNT;
+        }
+
+        int slotOf(long key) {
+            int mask = keys.length - 1;
+            for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void insert(long key, long balance, byte[] password, byte[] salt) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int slot = emptySlotFor(key);
+            keys[slot] = key;
+            balances[slot] = balance;
+            passwords[slot] = password;
+            salts[slot] = salt;
+            size++;
+        }
+
+        // Backward-shift deletion: later entries of the probe run move up so no tombstones are needed
+        boolean remove(long key) {
+            int hole = slotOf(key);
+            if (hole < 0) {
+                return false;
+            }
+            int mask = keys.length - 1;
+            for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = indexOf(keys[i], mask);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    balances[hole] = balances[i];
+                    passwords[hole] = passwords[i];
+                    salts[hole] = salts[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = EMPTY;
+            balances[hole] = 0;
+            passwords[hole] = null;
+            salts[hole] = null;
+            size--;
+            return true;
+        }
+
+        private int emptySlotFor(long key) {
+            int mask = keys.length - 1;
+            int i = indexOf(key, mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            long[] oldBalances = balances;
+            byte[][] oldPasswords = passwords;
+            byte[][] oldSalts = salts;
+            long[] newKeys = new long[capacity];
+            long[] newBalances = new long[capacity];
+            byte[][] newPasswords = new byte[capacity][];
+            byte[][] newSalts = new byte[capacity][];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = indexOf(oldKeys[i], mask);
+                    while (newKeys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    newKeys[slot] = oldKeys[i];
+                    newBalances[slot] = oldBalances[i];
+                    newPasswords[slot] = oldPasswords[i];
+                    newSalts[slot] = oldSalts[i];
+                }
+            }
+            keys = newKeys;
+            balances = newBalances;
+            passwords = newPasswords;
+            salts = newSalts;
+        }
+
+        private static int indexOf(long key, int mask) {
+            return (int) AccountNumbers.mix(key) & mask;
+        }
+    }
+}
@@ -1,25 +1,99 @@
 package com.example;
 
+// Hand-written scanners; each check makes a single pass over the input and never touches
+// java.util.regex. The accepted inputs are exactly those of the original patterns.
 public class InputValidator {
     private static final int MAX_ACCOUNT_LENGTH = 20;
-    private static final double MAX_TRANSACTION_AMOUNT = 1000000;
+    private static final long MAX_TRANSACTION_AMOUNT = Money.ofMajor(1000000);
+    private static final int MIN_PASSWORD_LENGTH = 8;
+    private static final String SPECIAL_CHARACTERS = "!@#$%^&*";
 
+    private static final int HAS_UPPER = 1;
+    private static final int HAS_LOWER = 2;
+    private static final int HAS_DIGIT = 4;
+    private static final int HAS_SPECIAL = 8;
+    private static final int ALL_CLASSES = HAS_UPPER | HAS_LOWER | HAS_DIGIT | HAS_SPECIAL;
+
+    // [A-Z]{2,3}\d{5,8}
     public static boolean validateAccountNumber(String accountNo) {
-        return accountNo != null && 
-               accountNo.matches("[A-Z]{2,3}\\d{5,8}") && 
-               accountNo.length() <= MAX_ACCOUNT_LENGTH;
+        if (accountNo == null) {
+            return false;
+        }
+        int length = accountNo.length();
+        if (length < 7 || length > 11 || length > MAX_ACCOUNT_LENGTH) {
+            return false;
+        }
+        int letters = 0;
+        while (letters < length && letters < 3 && isUpper(accountNo.charAt(letters))) {
+            letters++;
+        }
+        if (letters < 2) {
+            return false;
+        }
+        int digits = length - letters;
+        if (digits < 5 || digits > 8) {
+            return false;
+        }
+        for (int i = letters; i < length; i++) {
+            if (!isDigit(accountNo.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    // At least 8 characters including an upper case letter, a lower case letter, a digit and one of !@#$%^&*
     public static boolean validatePassword(String password) {
-        return password != null && 
-               password.length() >= 8 && 
-               password.matches(".*[A-Z].*") && 
-               password.matches(".*[a-z].*") && 
-               password.matches(".*\\d.*") && 
-               password.matches(".*[!@#$%^&*].*");
+        if (password == null || password.length() < MIN_PASSWORD_LENGTH) {
+            return false;
+        }
+        int classes = 0;
+        for (int i = 0, length = password.length(); i < length; i++) {
+            char c = password.charAt(i);
+            if (isUpper(c)) {
+                classes |= HAS_UPPER;
+            } else if (c >= 'a' && c <= 'z') {
+                classes |= HAS_LOWER;
+            } else if (isDigit(c)) {
+                classes |= HAS_DIGIT;
+            } else if (SPECIAL_CHARACTERS.indexOf(c) >= 0) {
+                classes |= HAS_SPECIAL;
+            } else if (isLineTerminator(c)) {
+                // The original ".*[A-Z].*" style patterns never matched across a line break
+                return false;
+            }
+        }
+        return classes == ALL_CLASSES;
     }
 
-    public static boolean validateAmount(double amount) {
+    public static boolean validateAmount(long amount) {
         return amount > 0 && amount <= MAX_TRANSACTION_AMOUNT;
     }
+
+    // Validates the first count records column-wise, sets valid[i] for each and returns how many passed
+    public static int validateRecords(String[] accountNos, String[] passwords, long[] amounts, int count,
+                                      boolean[] valid) {
+        int passed = 0;
+        for (int i = 0; i < count; i++) {
+            valid[i] = validateAccountNumber(accountNos[i])
+                    && validatePassword(passwords[i])
+                    && validateAmount(amounts[i]);
+            if (valid[i]) {
+                passed++;
+            }
+        }
+        return passed;
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
 }
@@ -0,0 +1,402 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// The MySQL backend: pooled connections, group-committed postings, the read-through balance
+// cache and the transaction journal, wired the way SecureBankingApp used them directly.
+//
+// With enableAccountFilter() lookups of account numbers that do not exist are answered from an
+// AccountBloomFilter without touching the database. The filter learns accounts created through
+// this store as they are created, but a "no" is stale for rows other writers (other servers,
+// BulkAccountImporter) inserted since it was built. A limited number of negatives per second
+// are therefore still checked against the table, and any account found that way is added.
+// Past that budget the filter is caught up with every row inserted since it was last brought
+// up to date (one indexed range query, shared by concurrent callers) and asked again, so
+// traffic for missing numbers cannot crowd out real accounts. Without an id column there is
+// nothing to catch up from, and the budget is all there is.
+public class JdbcAccountStore implements AccountStore {
+    private static final String INSERT_SQL = "INSERT INTO customers (accountNo, password, salt, balance) "
+            + "VALUES (?, ?, ?, " + Money.BIND_PARAM + ")";
+    private static final String CREDENTIALS_SQL = "SELECT password, salt FROM customers WHERE accountNo = ?";
+    private static final String BALANCE_SQL =
+            "SELECT " + Money.select("balance") + " FROM customers WHERE accountNo = ?";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM customers";
+    private static final String MAX_ID_SQL = "SELECT COALESCE(MAX(id), 0) FROM customers";
+    private static final String ACCOUNTS_SINCE_SQL = "SELECT id, accountNo FROM customers WHERE id > ?";
+    private static final String ACCOUNTS_SQL = "SELECT accountNo FROM customers";
+    private static final String DELETE_SQL = "DELETE FROM customers WHERE accountNo = ?";
+
+    public static final int DEFAULT_FILTER_FALLBACKS_PER_SECOND = 50;
+
+    private static final Logger logger = Logger.getLogger(JdbcAccountStore.class.getName());
+
+    private final ConnectionPool pool;
+    private final BalanceCache cache;
+    private final TransactionJournal journal;
+    private final PostingEngine postings;
+    private final TransferEngine transfers;
+
+    private AccountBloomFilter filter;
+    private Path filterSnapshot;
+    private boolean filterHasIds;
+    private volatile long filterMaxId; // every row up to this id is in the filter
+    private RateLimiter filterFallbacks;
+    private final LongAdder filterMisses = new LongAdder();
+    private final ReentrantLock catchUpLock = new ReentrantLock();
+    private volatile long catchUpsStarted;
+    private volatile long catchUpsDone;
+
+    // What to make of a lookup the filter rules out
+    private enum Negative { ABSENT, CHECK_TABLE, CAUGHT_UP }
+
+    public JdbcAccountStore(ConnectionPool pool, BalanceCache cache, TransactionJournal journal, long lingerMicros) {
+        this.pool = pool;
+        this.cache = cache;
+        this.journal = journal;
+        this.postings = new PostingEngine(pool, new TransactionEngine(pool, cache, journal), 2,
+                PostingEngine.DEFAULT_MAX_BATCH, lingerMicros);
+        this.transfers = new TransferEngine(pool, cache, journal);
+    }
+
+    // Loads the filter from snapshotFile and adds the rows inserted since it was saved, or builds
+    // it by streaming every account number from the table. The snapshot is stamped with the
+    // highest customers.id it covers: ids only grow, so rows past the stamp are exactly the ones
+    // it lacks, whatever was deleted meanwhile. Without an id column the filter is rebuilt on
+    // every start. snapshotFile may be null.
+    public JdbcAccountStore enableAccountFilter(Path snapshotFile, long expectedAccounts, double falsePositiveRate,
+                                                int fallbacksPerSecond) throws SQLException {
+        long start = System.nanoTime();
+        boolean hasIds = hasIdColumn();
+        long maxId = hasIds ? maxAccountId() : 0;
+        AccountBloomFilter.Snapshot snapshot = null;
+        if (snapshotFile != null && hasIds) {
+            try {
+                snapshot = AccountBloomFilter.readFrom(snapshotFile);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Ignoring unreadable account filter snapshot", e);
+            }
+        }
+
+        // A stamp past the table's highest id was taken against some other table
+        boolean fromSnapshot = snapshot != null && snapshot.stamp() <= maxId;
+        AccountBloomFilter loaded;
+        String source;
+        if (fromSnapshot) {
+            loaded = snapshot.filter();
+            long before = loaded.getInsertions();
+            maxId = addAccountsSince(loaded, snapshot.stamp());
+            source = "snapshot + " + (loaded.getInsertions() - before) + " new";
+        } else {
+            // maxId was read before streaming: rows added meanwhile are added again on the next
+            // catch-up, which is harmless
+            long rows = countAccounts();
+            loaded = new AccountBloomFilter(Math.max(expectedAccounts, rows * 2), falsePositiveRate);
+            forEachAccount(loaded::add);
+            source = "table scan of " + rows;
+        }
+        if (!hasIds) {
+            logger.warning("customers has no id column; the account filter is rebuilt on every start");
+        }
+        logger.info(String.format("Account filter ready in %d ms (%s accounts)",
+                (System.nanoTime() - start) / 1_000_000, source));
+
+        this.filter = loaded;
+        this.filterSnapshot = snapshotFile;
+        this.filterHasIds = hasIds;
+        this.filterMaxId = maxId;
+        this.filterFallbacks = new RateLimiter(fallbacksPerSecond);
+        return this;
+    }
+
+    private boolean hasIdColumn() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, "customers", "id")) {
+            return rs.next();
+        }
+    }
+
+    private long maxAccountId() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(MAX_ID_SQL)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Adds every account with an id past afterId; returns the highest id seen
+    private long addAccountsSince(AccountBloomFilter target, long afterId) throws SQLException {
+        long maxId = afterId;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(ACCOUNTS_SINCE_SQL)) {
+            stmt.setLong(1, afterId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    maxId = Math.max(maxId, rs.getLong(1));
+                    target.add(rs.getString(2));
+                }
+            }
+        }
+        return maxId;
+    }
+
+    private long countAccounts() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(COUNT_SQL)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Integer.MIN_VALUE makes Connector/J stream rows one at a time instead of buffering the table
+    @Override
+    public void forEachAccount(Consumer<String> action) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery(ACCOUNTS_SQL)) {
+                while (rs.next()) {
+                    action.accept(rs.getString(1));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean create(String accountNo, byte[] password, byte[] salt, long openingBalance) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+
+            stmt.setString(1, accountNo);
+            stmt.setBytes(2, password);
+            stmt.setBytes(3, salt);
+            Money.bind(stmt, 4, openingBalance);
+
+            // The opening deposit is journaled before the new row is committed
+            conn.setAutoCommit(false);
+            try {
+                stmt.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                conn.rollback();
+                return false;
+            }
+            try {
+                journal.append(accountNo, openingBalance, openingBalance, TransactionJournal.EntryType.OPENING);
+            } catch (IOException e) {
+                conn.rollback();
+                throw new SQLException("Transaction journal write failed", e);
+            }
+            if (filter != null) {
+                filter.add(accountNo); // before the commit, so no login can miss the new account
+            }
+            try {
+                journal.sync();
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                TransactionEngine.reverse(journal, accountNo, openingBalance, 0);
+                throw e instanceof SQLException sqlException ? sqlException
+                        : new SQLException("Transaction journal write failed", e);
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public Credentials findCredentials(String accountNo) throws SQLException {
+        boolean ruledOut = filter != null && !filter.mightContain(accountNo);
+        if (ruledOut) {
+            Negative negative = recheck(accountNo);
+            if (negative == Negative.ABSENT) {
+                return null;
+            }
+            ruledOut = negative == Negative.CHECK_TABLE;
+        }
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(CREDENTIALS_SQL)) {
+
+            stmt.setString(1, accountNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    if (!ruledOut) {
+                        recordFalsePositive();
+                    }
+                    return null;
+                }
+                if (ruledOut) {
+                    learn(accountNo);
+                }
+                return new Credentials(rs.getBytes("password"), rs.getBytes("salt"));
+            }
+        }
+    }
+
+    // Reads through the balance cache; see BalanceCache.fillToken()
+    @Override
+    public long getBalance(String accountNo) throws SQLException {
+        long balance = cache.get(accountNo);
+        if (balance != BalanceCache.MISSING) {
+            return balance;
+        }
+        boolean ruledOut = filter != null && !filter.mightContain(accountNo);
+        if (ruledOut) {
+            Negative negative = recheck(accountNo);
+            if (negative == Negative.ABSENT) {
+                return NO_ACCOUNT;
+            }
+            ruledOut = negative == Negative.CHECK_TABLE;
+        }
+
+        long token = cache.fillToken(accountNo);
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(BALANCE_SQL)) {
+
+            stmt.setString(1, accountNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    if (!ruledOut) {
+                        recordFalsePositive();
+                    }
+                    return NO_ACCOUNT;
+                }
+                if (ruledOut) {
+                    learn(accountNo);
+                }
+                balance = Money.read(rs, 1);
+                cache.fill(accountNo, balance, token);
+                return balance;
+            }
+        }
+    }
+
+    @Override
+    public TransactionEngine.Result updateBalance(String accountNo, long amount, boolean isDeposit)
+            throws SQLException {
+        return postings.post(accountNo, amount, isDeposit);
+    }
+
+    @Override
+    public TransferResult transfer(List<Transfer> legs) throws SQLException {
+        return transfers.transfer(legs);
+    }
+
+    // The account filter cannot forget the number; later lookups just fall through to the table
+    @Override
+    public boolean remove(String accountNo) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(DELETE_SQL)) {
+
+            stmt.setString(1, accountNo);
+            boolean removed = stmt.executeUpdate() > 0;
+            cache.invalidate(accountNo);
+            return removed;
+        }
+    }
+
+    // Malformed numbers never exist. Anything else the filter rules out may predate the filter:
+    // it is checked against the table while the fallback budget lasts, and after that against
+    // a filter caught up with the table
+    private Negative recheck(String accountNo) throws SQLException {
+        if (AccountNumbers.pack(accountNo) == AccountNumbers.INVALID) {
+            return Negative.ABSENT;
+        }
+        if (filterFallbacks.tryAcquire()) {
+            return Negative.CHECK_TABLE;
+        }
+        if (!filterHasIds) {
+            return Negative.ABSENT;
+        }
+        catchUp();
+        return filter.mightContain(accountNo) ? Negative.CAUGHT_UP : Negative.ABSENT;
+    }
+
+    // Adds the rows inserted since the last catch-up. Callers queue behind one query at a time,
+    // as TransactionJournal.sync() callers share one flush, and return once a query that
+    // started after they arrived has finished, so any row committed before the call is seen.
+    private void catchUp() throws SQLException {
+        long arrived = catchUpsStarted;
+        catchUpLock.lock();
+        try {
+            if (catchUpsDone > arrived) {
+                return;
+            }
+            catchUpsStarted++;
+            filterMaxId = addAccountsSince(filter, filterMaxId);
+            catchUpsDone = catchUpsStarted;
+        } finally {
+            catchUpLock.unlock();
+        }
+    }
+
+    // The filter said "no" to an account that exists
+    private void learn(String accountNo) {
+        filter.add(accountNo);
+        filterMisses.increment();
+    }
+
+    private void recordFalsePositive() {
+        if (filter != null) {
+            filter.recordFalsePositive();
+        }
+    }
+
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    public BalanceCache getCache() {
+        return cache;
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    public PostingEngine getPostings() {
+        return postings;
+    }
+
+    public TransferEngine getTransfers() {
+        return transfers;
+    }
+
+    // Null unless enableAccountFilter() was called
+    public AccountBloomFilter getAccountFilter() {
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("jdbc pool[%s] cache[%s] postings[%s] transfers[%s] filter[%s misses=%d catchUps=%d]",
+                pool, cache, postings, transfers, filter, filterMisses.sum(), catchUpsDone);
+    }
+
+    @Override
+    public void close() {
+        postings.close();
+        // Caught up first, so the stamp covers rows other writers added while this store ran
+        if (filter != null && filterSnapshot != null && filterHasIds) {
+            try {
+                catchUp();
+                filter.writeTo(filterSnapshot, filterMaxId);
+            } catch (SQLException | IOException e) {
+                logger.log(Level.WARNING, "Account filter snapshot failed", e);
+            }
+        }
+        pool.close();
+    }
+}
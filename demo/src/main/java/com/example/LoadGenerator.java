@@ -0,0 +1,410 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Capacity test for a release. Starts the application in-process on the embedded in-memory
+// store (unless -Dbank.store says otherwise), serves it on a local port and drives it through
+// the same line protocol as real clients, from a pool of connections used by virtual threads.
+//
+// The load is open-loop: requests arrive as a Poisson process at -Dload.rate per second
+// whether or not earlier ones have finished, and each latency is measured from the moment the
+// request was due, not from when a free connection picked it up. A server that stalls is
+// therefore charged for every request that queued behind the stall (no coordinated omission).
+// Service time, measured from when the request was actually sent, is reported alongside.
+//
+//   java -Dload.rate=2000 -Dload.durationSeconds=60 -Dload.clients=2000 -Dload.accounts=100000 \
+//        -Dload.zipf=0.99 -Dload.mix=create=2,login=8,balance=40,deposit=25,withdraw=25 \
+//        -cp ... com.example.LoadGenerator
+public class LoadGenerator {
+    private static final String PASSWORD = "L0adTest!Pass";
+    private static final long OPENING_BALANCE = Money.ofMajor(1_000_000);
+    private static final String AMOUNT = "1.00";
+    private static final long MFA_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long MFA_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long PROGRESS_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int LOGIN_LOCKS = 1024;
+
+    public enum Operation { CREATE, LOGIN, BALANCE, DEPOSIT, WITHDRAW }
+
+    public record Config(double rate, long durationSeconds, int clients, int accounts, double zipfExponent,
+                         int[] mix) {
+        static Config fromProperties() {
+            return new Config(Double.parseDouble(System.getProperty("load.rate", "500")),
+                    Long.getLong("load.durationSeconds", 30), Integer.getInteger("load.clients", 1000),
+                    Integer.getInteger("load.accounts", 10_000),
+                    Double.parseDouble(System.getProperty("load.zipf", "0.99")),
+                    parseMix(System.getProperty("load.mix", "create=2,login=8,balance=40,deposit=25,withdraw=25")));
+        }
+    }
+
+    private final Config config;
+    private final StubMfaGateway gateway;
+    private final Zipf zipf;
+    private final ReentrantLock[] loginLocks = new ReentrantLock[LOGIN_LOCKS];
+    private final AtomicLong createdAccounts = new AtomicLong(ThreadLocalRandom.current().nextInt(10_000_000));
+
+    private final Map<Operation, LatencyHistogram> latency = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> serviceTime = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final LatencyHistogram mfaLatency = new LatencyHistogram();
+    private final LongAdder implicitLogins = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public LoadGenerator(Config config, StubMfaGateway gateway) {
+        this.config = config;
+        this.gateway = gateway;
+        this.zipf = new Zipf(config.accounts(), config.zipfExponent());
+        for (int i = 0; i < LOGIN_LOCKS; i++) {
+            loginLocks[i] = new ReentrantLock();
+        }
+        for (Operation operation : Operation.values()) {
+            latency.put(operation, new LatencyHistogram());
+            serviceTime.put(operation, new LatencyHistogram());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Must be set before SecureBankingApp and MFAService initialize. Throttling is meant for
+        // attackers, and a load test logs in to the same hot accounts far more often than people do.
+        setDefault("bank.store", "memory");
+        setDefault("bank.journal.dir", Files.createTempDirectory("load-journal").toString());
+        setDefault("bank.login.accountLimit", String.valueOf(Integer.MAX_VALUE));
+        setDefault("bank.login.sourceLimit", String.valueOf(Integer.MAX_VALUE));
+        setDefault("bank.mfa.quiet", "true");
+        setDefault("bank.mfa.recordCodes", "true");
+        setDefault("bank.mfa.permitsPerSecond", "1000000");
+
+        Config config = Config.fromProperties();
+        if (!(MFAService.getGateway() instanceof StubMfaGateway gateway)) {
+            System.out.println("Load tests need the stub MFA gateway to read verification codes");
+            return;
+        }
+        LoadGenerator generator = new LoadGenerator(config, gateway);
+
+        long start = System.nanoTime();
+        seed(SecureBankingApp.getStore(), config.accounts());
+        System.out.printf("Seeded %d accounts in %d ms%n", config.accounts(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        try (BankingServer server = new BankingServer(0)) {
+            Thread.ofVirtual().name("load-server").start(() -> {
+                try {
+                    server.serve();
+                } catch (IOException e) {
+                    SecureExceptionHandler.handle(e, "Server error");
+                }
+            });
+            generator.run("127.0.0.1", server.getPort());
+        } finally {
+            SecureBankingApp.shutdown();
+        }
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    // One hash shared by every seeded account keeps setup fast; logins still do the full PBKDF2 work
+    private static void seed(AccountStore store, int accounts) throws Exception {
+        byte[] salt = PasswordEncryptionService.generateSalt();
+        byte[] hash = PasswordEncryptionService.getEncryptedPassword(PASSWORD, salt);
+        for (int i = 0; i < accounts; i++) {
+            store.create(accountNo(i), hash, salt, OPENING_BALANCE); // false if kept from a snapshot
+        }
+    }
+
+    private static String accountNo(int i) {
+        return "LG" + (10_000_000 + i);
+    }
+
+    public void run(String host, int port) throws IOException, InterruptedException {
+        BlockingQueue<Client> idle = new ArrayBlockingQueue<>(config.clients());
+        for (int i = 0; i < config.clients(); i++) {
+            idle.add(new Client(host, port));
+        }
+        System.out.printf("Offering %.0f requests/s for %d s from %d clients over %d accounts (zipf %.2f)%n",
+                config.rate(), config.durationSeconds(), config.clients(), config.accounts(), config.zipfExponent());
+
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        long nextProgress = start + PROGRESS_NANOS;
+        long offered = 0;
+        LongAdder completed = new LongAdder();
+
+        for (long due = start; due < end; due += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos)) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long scheduled = due;
+            Operation operation = pick(random.nextInt(config.mix()[config.mix().length - 1]));
+            workers.execute(() -> {
+                execute(idle, operation, scheduled);
+                completed.increment();
+            });
+            offered++;
+            if (System.nanoTime() >= nextProgress) {
+                System.out.printf("%3d s  offered=%d completed=%d%n",
+                        TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), offered, completed.sum());
+                nextProgress += PROGRESS_NANOS;
+            }
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+
+        for (Client client : idle) {
+            client.close();
+        }
+        report(offered, completed.sum(), elapsed);
+    }
+
+    private Operation pick(int ticket) {
+        int[] mix = config.mix();
+        for (int i = 0; i < mix.length; i++) {
+            if (ticket < mix[i]) {
+                return Operation.values()[i];
+            }
+        }
+        throw new IllegalStateException("Bad operation mix");
+    }
+
+    private void execute(BlockingQueue<Client> idle, Operation operation, long scheduled) {
+        Client client;
+        try {
+            client = idle.take(); // waiting for a connection counts: the request was already due
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long sent = System.nanoTime();
+        boolean ok;
+        try {
+            ok = switch (operation) {
+                case CREATE -> client.request("CREATE LGC" + (10_000_000 + createdAccounts.incrementAndGet()
+                        % 90_000_000) + " " + PASSWORD + " 100.00").equals("Account created successfully");
+                case LOGIN -> login(client, accountNo(zipf.next()));
+                case BALANCE -> ensureLoggedIn(client) && client.request("BALANCE").startsWith("Current balance");
+                case DEPOSIT -> ensureLoggedIn(client)
+                        && client.request("DEPOSIT " + AMOUNT).startsWith("Transaction successful");
+                case WITHDRAW -> ensureLoggedIn(client)
+                        && isWithdrawal(client.request("WITHDRAW " + AMOUNT));
+            };
+        } catch (IOException e) {
+            ok = false;
+            client = client.reconnect();
+        }
+        long done = System.nanoTime();
+        latency.get(operation).record(done - scheduled);
+        serviceTime.get(operation).record(done - sent);
+        if (!ok) {
+            errors.get(operation).increment();
+        }
+        idle.add(client);
+    }
+
+    private static boolean isWithdrawal(String response) {
+        return response.startsWith("Transaction successful") || response.equals("Insufficient funds");
+    }
+
+    private boolean ensureLoggedIn(Client client) throws IOException {
+        if (client.loggedInAs != null) {
+            return true;
+        }
+        implicitLogins.increment();
+        return login(client, accountNo(zipf.next()));
+    }
+
+    // LOGIN then VERIFY with the code the stub gateway delivered. A person cannot log in to the
+    // same account twice at once, so logins to one account are serialized here; otherwise one
+    // login's challenge would replace the other's.
+    private boolean login(Client client, String accountNo) throws IOException {
+        client.loggedInAs = null;
+        ReentrantLock lock = loginLocks[Math.floorMod(accountNo.hashCode(), LOGIN_LOCKS)];
+        lock.lock();
+        try {
+            gateway.takeCodeFor(accountNo);
+            if (!client.request("LOGIN " + accountNo + " " + PASSWORD).equals("Enter Verification Code")) {
+                return false;
+            }
+            long mfaStart = System.nanoTime();
+            String code;
+            while ((code = gateway.takeCodeFor(accountNo)) == null) {
+                if (System.nanoTime() - mfaStart > MFA_TIMEOUT_NANOS) {
+                    return false;
+                }
+                LockSupport.parkNanos(MFA_POLL_NANOS);
+            }
+            boolean verified = client.request("VERIFY " + code).equals("Login successful!");
+            mfaLatency.recordSince(mfaStart);
+            if (verified) {
+                client.loggedInAs = accountNo;
+            }
+            return verified;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void report(long offered, long completed, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nOffered %d, completed %d in %.1f s: %.1f requests/s (target %.1f)%n",
+                offered, completed, seconds, completed / seconds, config.rate());
+        System.out.printf("Latency from the time each request was due, in ms; svc p99 is service time only%n");
+        System.out.printf("%-9s %9s %7s %9s %8s %8s %8s %8s %8s %10s%n", "operation", "count", "errors", "req/s",
+                "p50", "p90", "p99", "p99.9", "max", "svc p99");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = latency.get(operation);
+            if (histogram.count() == 0) {
+                continue;
+            }
+            System.out.printf("%-9s %9d %7d %9.1f %8s %8s %8s %8s %8s %10s%n", operation, histogram.count(),
+                    errors.get(operation).sum(), histogram.count() / seconds, millis(histogram.percentile(50)),
+                    millis(histogram.percentile(90)), millis(histogram.percentile(99)),
+                    millis(histogram.percentile(99.9)), millis(histogram.max()),
+                    millis(serviceTime.get(operation).percentile(99)));
+        }
+        System.out.printf("MFA code delivery and verification: %s%n", mfaLatency);
+        System.out.printf("Requests the server shed as busy (counted in errors): %d%n", shed.sum());
+        System.out.printf("Logins done on demand by balance/deposit/withdraw: %d%n", implicitLogins.sum());
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    // "create=2,login=8,..." as cumulative weights in Operation order
+    static int[] parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Bad load.mix entry: " + part);
+            }
+            weights[Operation.valueOf(pair[0].trim().toUpperCase()).ordinal()] = Integer.parseInt(pair[1].trim());
+        }
+        for (int i = 1; i < weights.length; i++) {
+            weights[i] += weights[i - 1];
+        }
+        if (weights[weights.length - 1] <= 0) {
+            throw new IllegalArgumentException("load.mix has no positive weights");
+        }
+        return weights;
+    }
+
+    // Zipf-distributed account indexes: rank r is chosen with probability proportional to
+    // 1 / r^exponent, so index 0 is the hottest account. An exponent of 0 is uniform.
+    static final class Zipf {
+        private final double[] cdf;
+
+        Zipf(int items, double exponent) {
+            cdf = new double[items];
+            double sum = 0;
+            for (int i = 0; i < items; i++) {
+                sum += 1 / Math.pow(i + 1, exponent);
+                cdf[i] = sum;
+            }
+            for (int i = 0; i < items; i++) {
+                cdf[i] /= sum;
+            }
+        }
+
+        int next() {
+            int i = Arrays.binarySearch(cdf, ThreadLocalRandom.current().nextDouble());
+            return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+        }
+    }
+
+    private final class Client implements Closeable {
+        private final String host;
+        private final int port;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintWriter out;
+        private String loggedInAs;
+
+        Client(String host, int port) throws IOException {
+            this.host = host;
+            this.port = port;
+            this.socket = new Socket(host, port);
+            this.socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            readResponse(); // welcome banner
+        }
+
+        // The first line of the response
+        String request(String line) throws IOException {
+            out.println(line);
+            out.flush();
+            String response = readResponse();
+            if (response.startsWith("System busy")) {
+                shed.increment();
+            }
+            return response;
+        }
+
+        private String readResponse() throws IOException {
+            String first = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals(".")) {
+                    return first == null ? "" : first;
+                }
+                if (first == null) {
+                    first = line;
+                }
+            }
+            throw new EOFException("Server closed the connection");
+        }
+
+        // A fresh connection after an I/O error; keeps retrying so the pool never shrinks
+        Client reconnect() {
+            close();
+            while (true) {
+                try {
+                    return new Client(host, port);
+                } catch (IOException e) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already broken; nothing to release
+            }
+        }
+    }
+}
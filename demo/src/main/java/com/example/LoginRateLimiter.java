@@ -0,0 +1,298 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Throttles login attempts per account and per source address before any password hashing.
+// Each key has a sliding-window counter approximated from two fixed windows: the estimate is
+// the current window's count plus the previous window's count weighted by how much of it still
+// overlaps the sliding window. Counters live in lock-striped open-addressing tables of
+// primitives; entries older than two windows count as empty and are purged whenever a stripe
+// fills up, so memory stays bounded without a cleanup thread. If a stripe is still full, the
+// entry with the fewest recent attempts makes room: a flood of fresh keys can only push out
+// keys with as little history as its own, never lock everyone out.
+public class LoginRateLimiter {
+    public static final int DEFAULT_ACCOUNT_LIMIT = 5;
+    public static final int DEFAULT_SOURCE_LIMIT = 20;
+    public static final long DEFAULT_WINDOW_SECONDS = 60;
+
+    public enum Decision { ALLOWED, ACCOUNT_THROTTLED, SOURCE_THROTTLED }
+
+    private static final long EMPTY = 0;
+
+    private final SlidingWindowCounter accounts;
+    private final SlidingWindowCounter sources;
+    private final long origin = System.nanoTime();
+    private final long windowNanos;
+    private final LongAdder rejected = new LongAdder();
+
+    public LoginRateLimiter() {
+        this(DEFAULT_ACCOUNT_LIMIT, DEFAULT_SOURCE_LIMIT, DEFAULT_WINDOW_SECONDS, 65_536);
+    }
+
+    public LoginRateLimiter(int accountLimit, int sourceLimit, long windowSeconds, int maxTrackedKeys) {
+        this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+        this.accounts = new SlidingWindowCounter(accountLimit, maxTrackedKeys);
+        this.sources = new SlidingWindowCounter(sourceLimit, maxTrackedKeys);
+    }
+
+    // Records the attempt if both the account and the source are under their limits.
+    // Rejected attempts are not counted, so a throttled key recovers as the window slides.
+    public Decision tryAcquire(String accountNo, String source) {
+        return tryAcquire(accountNo, source, System.nanoTime());
+    }
+
+    Decision tryAcquire(String accountNo, String source, long nowNanos) {
+        long elapsed = nowNanos - origin;
+        int window = (int) (elapsed / windowNanos);
+        double overlap = 1.0 - (double) (elapsed % windowNanos) / windowNanos;
+        long accountKey = keyOf(accountNo);
+        long sourceKey = keyOf(source);
+
+        if (!sources.tryAcquire(sourceKey, window, overlap)) {
+            rejected.increment();
+            return Decision.SOURCE_THROTTLED;
+        }
+        if (!accounts.tryAcquire(accountKey, window, overlap)) {
+            sources.release(sourceKey, window);
+            rejected.increment();
+            return Decision.ACCOUNT_THROTTLED;
+        }
+        return Decision.ALLOWED;
+    }
+
+    // A successful login clears the account's failed-attempt history
+    public void onSuccess(String accountNo) {
+        accounts.clear(keyOf(accountNo));
+    }
+
+    // Packed account numbers are exact; anything else (source addresses, malformed input) is
+    // hashed with 64-bit FNV-1a
+    private static long keyOf(String value) {
+        long key = AccountNumbers.pack(value);
+        if (key == AccountNumbers.INVALID) {
+            value = String.valueOf(value);
+            key = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                key = (key ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            key |= Long.MIN_VALUE; // keeps hashed keys apart from packed ones, and never 0
+        }
+        return key;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rejected=%d trackedAccounts=%d trackedSources=%d", rejected.sum(),
+                accounts.size(), sources.size());
+    }
+
+    private static final class SlidingWindowCounter {
+        private static final int STRIPES = 32;
+
+        private final int limit;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+
+        SlidingWindowCounter(int limit, int maxKeys) {
+            this.limit = limit;
+            int perStripe = Math.max(8, maxKeys / STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(perStripe);
+            }
+        }
+
+        boolean tryAcquire(long key, int window, double overlap) {
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                int slot = stripe.slotFor(key, window);
+                stripe.roll(slot, window);
+                double estimate = stripe.current[slot] + stripe.previous[slot] * overlap;
+                if (estimate >= limit) {
+                    return false;
+                }
+                stripe.current[slot]++;
+                return true;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        void release(long key, int window) {
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                int slot = stripe.find(key);
+                if (slot >= 0 && stripe.windows[slot] == window && stripe.current[slot] > 0) {
+                    stripe.current[slot]--;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        void clear(long key) {
+            Stripe stripe = stripeFor(key);
+            stripe.lock.lock();
+            try {
+                int slot = stripe.find(key);
+                if (slot >= 0) {
+                    stripe.current[slot] = 0;
+                    stripe.previous[slot] = 0;
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.size;
+            }
+            return size;
+        }
+
+        private Stripe stripeFor(long key) {
+            return stripes[(int) (AccountNumbers.mix(key) >>> 59) & (STRIPES - 1)];
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private long[] keys;
+        private int[] windows;
+        private int[] current;
+        private int[] previous;
+        private volatile int size;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            allocate(Integer.highestOneBit(capacity * 2 - 1) << 1);
+        }
+
+        private void allocate(int tableSize) {
+            keys = new long[tableSize];
+            windows = new int[tableSize];
+            current = new int[tableSize];
+            previous = new int[tableSize];
+        }
+
+        // Finds or inserts the key; purges expired entries when the stripe is full, and evicts
+        // the quietest entry if that frees nothing
+        int slotFor(long key, int window) {
+            int slot = find(key);
+            if (slot >= 0) {
+                return slot;
+            }
+            if (size >= capacity) {
+                purge(window);
+                if (size >= capacity) {
+                    evictQuietest(window);
+                }
+            }
+            int mask = keys.length - 1;
+            slot = (int) AccountNumbers.mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            windows[slot] = window;
+            current[slot] = 0;
+            previous[slot] = 0;
+            size++;
+            return slot;
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) AccountNumbers.mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        // Removes the entry with the fewest attempts in the current and previous windows, the
+        // least recently active one among equals
+        private void evictQuietest(int window) {
+            int victim = -1;
+            int fewest = Integer.MAX_VALUE;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != EMPTY) {
+                    int attempts = windows[i] == window ? current[i] + previous[i] : current[i];
+                    if (attempts < fewest || (attempts == fewest && windows[i] < windows[victim])) {
+                        victim = i;
+                        fewest = attempts;
+                    }
+                }
+            }
+            delete(victim);
+        }
+
+        // Backward-shift deletion, as in BalanceCache
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = (int) AccountNumbers.mix(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    windows[gap] = windows[i];
+                    current[gap] = current[i];
+                    previous[gap] = previous[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+        }
+
+        // Moves the slot's counts forward to the given window
+        void roll(int slot, int window) {
+            int age = window - windows[slot];
+            if (age == 1) {
+                previous[slot] = current[slot];
+                current[slot] = 0;
+            } else if (age > 1) {
+                previous[slot] = 0;
+                current[slot] = 0;
+            }
+            windows[slot] = window;
+        }
+
+        // Rebuilds the table keeping only keys with activity in the current or previous window
+        private void purge(int window) {
+            long[] oldKeys = keys;
+            int[] oldWindows = windows;
+            int[] oldCurrent = current;
+            int[] oldPrevious = previous;
+            allocate(oldKeys.length);
+            int mask = keys.length - 1;
+            int live = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY && window - oldWindows[i] <= 1) {
+                    int slot = (int) AccountNumbers.mix(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    windows[slot] = oldWindows[i];
+                    current[slot] = oldCurrent[i];
+                    previous[slot] = oldPrevious[i];
+                    live++;
+                }
+            }
+            size = live;
+        }
+    }
+}
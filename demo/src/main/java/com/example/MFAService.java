@@ -1,14 +1,24 @@
 package com.example;
 
-import java.util.Random;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 
 public class MFAService {
-    private static final int CODE_LENGTH = 6;
-    private static final int CODE_VALIDITY_MINUTES = 5;
-    
+    static final int CODE_LENGTH = 6;
+    static final int CODE_VALIDITY_MINUTES = 5;
+    private static final MfaGateway.Channel DEFAULT_CHANNEL =
+            MfaGateway.Channel.valueOf(System.getProperty("bank.mfa.channel", "SMS"));
+    // In real implementation, a gateway that sends via SMS/email
+    private static final MfaGateway gateway =
+            new StubMfaGateway(!Boolean.getBoolean("bank.mfa.quiet"), 0, 0,
+                    Boolean.getBoolean("bank.mfa.recordCodes"));
+    private static final MfaDeliveryDispatcher dispatcher = new MfaDeliveryDispatcher(gateway,
+            MfaDeliveryDispatcher.DEFAULT_MAX_BATCH,
+            Integer.getInteger("bank.mfa.permitsPerSecond", MfaDeliveryDispatcher.DEFAULT_PERMITS_PER_SECOND));
 
     public static String generateVerificationCode() {
-        Random random = new Random();
+        SecureRandom random = SaltProvider.current();
         StringBuilder code = new StringBuilder();
         for (int i = 0; i < CODE_LENGTH; i++) {
             code.append(random.nextInt(10));
@@ -16,14 +26,23 @@ public class MFAService {
         return code.toString();
     }
 
+    // Queues the code for delivery and returns without waiting on the gateway
     public static boolean sendVerificationCode(String accountNo, String code) {
-        // In real implementation, send via SMS/email
-        System.out.println("MFA code for " + accountNo + ": " + code);
-        System.out.println("This code is valid for " + CODE_VALIDITY_MINUTES + " minutes");
-        return true;
+        return dispatcher.enqueue(accountNo, code, DEFAULT_CHANNEL);
     }
 
+    public static MfaDeliveryDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public static MfaGateway getGateway() {
+        return gateway;
+    }
+
+    // Constant-time comparison; see MfaChallengeStore for pending codes
     public static boolean verifyCode(String storedCode, String enteredCode) {
-        return storedCode != null && storedCode.equals(enteredCode);
+        return storedCode != null && enteredCode != null
+                && MessageDigest.isEqual(storedCode.getBytes(StandardCharsets.UTF_8),
+                        enteredCode.getBytes(StandardCharsets.UTF_8));
     }
 }
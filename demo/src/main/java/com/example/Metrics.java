@@ -0,0 +1,65 @@
+package com.example;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Process-wide registry of operation timers, counters and error counts. Timers and counters
+// are looked up once and kept in static fields by the code that records them, so recording is
+// a histogram update or a LongAdder increment with no map lookup. render() produces a plain
+// text dump, one metric per line, for MetricsExporter.
+public final class Metrics {
+    private static final Metrics global = new Metrics();
+
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<?>> components = new ConcurrentHashMap<>();
+
+    public static Metrics global() {
+        return global;
+    }
+
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void recordError(Throwable error) {
+        errors.computeIfAbsent(error.getClass(), k -> new LongAdder()).increment();
+    }
+
+    // Free-form status of a subsystem (pool, queues, caches), rendered with its toString()
+    public void registerComponent(String name, Supplier<?> status) {
+        components.put(name, status);
+    }
+
+    public String render() {
+        StringBuilder text = new StringBuilder(4096);
+        new TreeMap<>(timers).forEach((name, histogram) -> {
+            text.append(name).append("_count ").append(histogram.count()).append('\n');
+            text.append(name).append("_mean_us ").append(micros(Math.round(histogram.mean()))).append('\n');
+            text.append(name).append("_p50_us ").append(micros(histogram.percentile(50))).append('\n');
+            text.append(name).append("_p99_us ").append(micros(histogram.percentile(99))).append('\n');
+            text.append(name).append("_p999_us ").append(micros(histogram.percentile(99.9))).append('\n');
+            text.append(name).append("_max_us ").append(micros(histogram.max())).append('\n');
+        });
+        new TreeMap<>(counters).forEach((name, counter) ->
+                text.append(name).append(' ').append(counter.sum()).append('\n'));
+        errors.forEach((type, counter) ->
+                text.append("errors{type=\"").append(type.getSimpleName()).append("\"} ").append(counter.sum())
+                        .append('\n'));
+        new TreeMap<>(components).forEach((name, status) ->
+                text.append("# ").append(name).append(": ").append(status.get()).append('\n'));
+        return text.toString();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Publishes Metrics.render(): over HTTP at GET /metrics (bound to localhost) and/or by
+// rewriting a dump file at a fixed interval. Rendering happens only when someone asks, so
+// the recording side pays nothing for either.
+public class MetricsExporter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(MetricsExporter.class.getName());
+
+    private final Metrics metrics;
+    private HttpServer server;
+    private ScheduledExecutorService dumper;
+
+    public MetricsExporter(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public MetricsExporter serve(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = metrics.render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return this;
+    }
+
+    public MetricsExporter dumpTo(Path file, long intervalSeconds) {
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleWithFixedDelay(() -> dump(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        return this;
+    }
+
+    // Written to a temporary file and moved into place so readers never see a partial dump
+    private void dump(Path file) {
+        try {
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temp, metrics.render());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Metrics dump failed", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (dumper != null) {
+            dumper.shutdownNow();
+        }
+    }
+}
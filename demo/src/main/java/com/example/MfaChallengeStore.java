@@ -0,0 +1,369 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Outstanding MFA challenges keyed by account. Challenges live in lock-striped open-addressing
+// tables of primitive arrays (about 40 bytes per pending code, see getMemoryBytes()) and are
+// expired by a hashed timing wheel: each tick only visits the accounts whose codes were issued
+// one validity period earlier, never the whole table. Verification re-checks the deadline, so
+// a code is never accepted late even if the expiry thread falls behind.
+public class MfaChallengeStore implements AutoCloseable {
+    public enum Outcome { ACCEPTED, REJECTED, EXPIRED, LOCKED, NO_CHALLENGE }
+
+    public static final int MAX_ATTEMPTS = 3;
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int validityTicks;
+    private final int wheelMask;
+    private final int maxPerSegment;
+    private final long origin = System.nanoTime();
+    private final Thread expiryThread;
+    private volatile boolean running = true;
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder locked = new LongAdder();
+
+    public MfaChallengeStore() {
+        this(TimeUnit.MINUTES.toSeconds(MFAService.CODE_VALIDITY_MINUTES), 4_000_000);
+    }
+
+    public MfaChallengeStore(long validitySeconds, int maxChallenges) {
+        this.validityTicks = (int) validitySeconds;
+        // The wheel must span a whole validity period so every deadline lands in a distinct lap
+        this.wheelMask = Integer.highestOneBit(validityTicks + 1) * 2 - 1;
+        this.maxPerSegment = Math.max(1, maxChallenges / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+        expiryThread = new Thread(this::expireLoop, "mfa-expiry");
+        expiryThread.setDaemon(true);
+        expiryThread.start();
+    }
+
+    // Replaces any challenge already pending for the account; returns false if the store is full
+    public boolean issue(String accountNo, String code) {
+        long key = AccountNumbers.pack(accountNo);
+        int value = parseCode(code);
+        if (key == AccountNumbers.INVALID || value < 0) {
+            throw new IllegalArgumentException("Invalid MFA challenge");
+        }
+        if (!segmentFor(key).issue(key, value, currentTick() + validityTicks)) {
+            return false;
+        }
+        issued.increment();
+        return true;
+    }
+
+    public Outcome verify(String accountNo, String code) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return Outcome.NO_CHALLENGE;
+        }
+        Outcome outcome = segmentFor(key).verify(key, code, currentTick());
+        switch (outcome) {
+            case ACCEPTED -> accepted.increment();
+            case REJECTED -> rejected.increment();
+            case EXPIRED -> expired.increment();
+            case LOCKED -> locked.increment();
+            default -> { }
+        }
+        return outcome;
+    }
+
+    public void cancel(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        if (key != AccountNumbers.INVALID) {
+            segmentFor(key).cancel(key);
+        }
+    }
+
+    // Digits only, exactly MFAService.CODE_LENGTH of them; -1 otherwise
+    private static int parseCode(String code) {
+        if (code == null || code.length() != MFAService.CODE_LENGTH) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private int currentTick() {
+        return (int) ((System.nanoTime() - origin) / TICK_NANOS);
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (AccountNumbers.mix(key) >>> 58) & (SEGMENTS - 1)];
+    }
+
+    private void expireLoop() {
+        int lastTick = currentTick();
+        while (running) {
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(TICK_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            int now = currentTick();
+            // A long pause can skip ticks; a full lap of the wheel covers every slot
+            for (int tick = Math.max(lastTick + 1, now - wheelMask); tick <= now; tick++) {
+                for (Segment segment : segments) {
+                    expired.add(segment.expire(tick, now));
+                }
+            }
+            lastTick = now;
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    // Bytes held by the tables and the wheel, for sizing; excludes fixed per-object overhead
+    public long getMemoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.memoryBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        int size = size();
+        long bytes = getMemoryBytes();
+        return String.format("pending=%d issued=%d accepted=%d rejected=%d expired=%d locked=%d memory=%dKB (%d B/code)",
+                size, issued.sum(), accepted.sum(), rejected.sum(), expired.sum(), locked.sum(), bytes / 1024,
+                size == 0 ? 0 : bytes / size);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        expiryThread.interrupt();
+    }
+
+    private final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private int[] codes = new int[INITIAL_SEGMENT_CAPACITY];
+        private int[] deadlines = new int[INITIAL_SEGMENT_CAPACITY];
+        private byte[] attempts = new byte[INITIAL_SEGMENT_CAPACITY];
+        private volatile int size;
+
+        // Per-tick lists of keys due to expire; entries are re-checked against the table on expiry
+        private final long[][] wheel = new long[wheelMask + 1][];
+        private final int[] wheelSizes = new int[wheelMask + 1];
+
+        boolean issue(long key, int code, int deadline) {
+            lock.lock();
+            try {
+                int slot = slotOf(key);
+                if (slot < 0) {
+                    if (size >= maxPerSegment) {
+                        return false;
+                    }
+                    if ((size + 1) * 2 > keys.length) {
+                        resize(keys.length * 2);
+                    }
+                    slot = emptySlotFor(key);
+                    keys[slot] = key;
+                    size++;
+                }
+                codes[slot] = code;
+                deadlines[slot] = deadline;
+                attempts[slot] = 0;
+                schedule(key, deadline);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Outcome verify(long key, String entered, int now) {
+            lock.lock();
+            try {
+                int slot = slotOf(key);
+                if (slot < 0) {
+                    return Outcome.NO_CHALLENGE;
+                }
+                if (deadlines[slot] <= now) {
+                    delete(slot);
+                    return Outcome.EXPIRED;
+                }
+                if (matches(codes[slot], entered)) {
+                    delete(slot);
+                    return Outcome.ACCEPTED;
+                }
+                if (++attempts[slot] >= MAX_ATTEMPTS) {
+                    delete(slot);
+                    return Outcome.LOCKED;
+                }
+                return Outcome.REJECTED;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void cancel(long key) {
+            lock.lock();
+            try {
+                int slot = slotOf(key);
+                if (slot >= 0) {
+                    delete(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int expire(int tick, int now) {
+            lock.lock();
+            try {
+                int index = tick & wheelMask;
+                long[] due = wheel[index];
+                int count = wheelSizes[index];
+                int removed = 0;
+                for (int i = 0; i < count; i++) {
+                    int slot = slotOf(due[i]);
+                    // Reissued codes carry a later deadline and stay put
+                    if (slot >= 0 && deadlines[slot] <= now) {
+                        delete(slot);
+                        removed++;
+                    }
+                }
+                wheelSizes[index] = 0;
+                if (due != null && due.length > INITIAL_SEGMENT_CAPACITY && count < due.length / 4) {
+                    wheel[index] = null; // let a burst's worth of slot capacity go
+                }
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void schedule(long key, int deadline) {
+            int index = deadline & wheelMask;
+            long[] due = wheel[index];
+            int count = wheelSizes[index];
+            if (due == null) {
+                due = wheel[index] = new long[8];
+            } else if (count == due.length) {
+                due = wheel[index] = Arrays.copyOf(due, count * 2);
+            }
+            due[count] = key;
+            wheelSizes[index] = count + 1;
+        }
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            for (int i = indexOf(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        private int emptySlotFor(long key) {
+            int mask = keys.length - 1;
+            int i = indexOf(key, mask);
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldCodes = codes;
+            int[] oldDeadlines = deadlines;
+            byte[] oldAttempts = attempts;
+            keys = new long[capacity];
+            codes = new int[capacity];
+            deadlines = new int[capacity];
+            attempts = new byte[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = emptySlotFor(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    codes[slot] = oldCodes[i];
+                    deadlines[slot] = oldDeadlines[i];
+                    attempts[slot] = oldAttempts[i];
+                }
+            }
+        }
+
+        // Backward-shift deletion, as in BalanceCache
+        private void delete(int slot) {
+            int mask = keys.length - 1;
+            int gap = slot;
+            for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = indexOf(keys[i], mask);
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    codes[gap] = codes[i];
+                    deadlines[gap] = deadlines[i];
+                    attempts[gap] = attempts[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = EMPTY;
+            codes[gap] = 0;
+            size--;
+        }
+
+        private long memoryBytes() {
+            lock.lock();
+            try {
+                long bytes = keys.length * (8L + 4 + 4 + 1);
+                for (long[] due : wheel) {
+                    bytes += due == null ? 0 : due.length * 8L;
+                }
+                return bytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static int indexOf(long key, int mask) {
+        return (int) AccountNumbers.mix(key) & mask;
+    }
+
+    // Constant time in the code value: every digit is compared whether or not an earlier one differed
+    private static boolean matches(int expected, String entered) {
+        if (entered == null || entered.length() != MFAService.CODE_LENGTH) {
+            return false;
+        }
+        int diff = 0;
+        int remaining = expected;
+        for (int i = entered.length() - 1; i >= 0; i--) {
+            diff |= (entered.charAt(i) - '0') ^ (remaining % 10);
+            remaining /= 10;
+        }
+        return diff == 0;
+    }
+}
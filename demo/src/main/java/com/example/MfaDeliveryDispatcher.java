@@ -0,0 +1,159 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Sends MFA codes off the login path. enqueue() only offers to a per-channel queue; a few
+// virtual threads per channel drain it in batches, throttle to the channel's send rate and
+// retry failed batches with exponential backoff.
+public class MfaDeliveryDispatcher implements AutoCloseable {
+    public static final int DEFAULT_MAX_BATCH = 50;
+    public static final int DEFAULT_PERMITS_PER_SECOND = 100;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int SENDERS_PER_CHANNEL = 2;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long INITIAL_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private static final Logger logger = Logger.getLogger(MfaDeliveryDispatcher.class.getName());
+
+    private final MfaGateway gateway;
+    private final int maxBatch;
+    private final Map<MfaGateway.Channel, BlockingQueue<MfaGateway.Delivery>> queues =
+            new EnumMap<>(MfaGateway.Channel.class);
+    private final Map<MfaGateway.Channel, RateLimiter> limiters = new EnumMap<>(MfaGateway.Channel.class);
+    private final List<Thread> senders = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram gatewayLatency = new LatencyHistogram();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MfaDeliveryDispatcher(MfaGateway gateway) {
+        this(gateway, DEFAULT_MAX_BATCH, DEFAULT_PERMITS_PER_SECOND);
+    }
+
+    public MfaDeliveryDispatcher(MfaGateway gateway, int maxBatch, int permitsPerSecond) {
+        this.gateway = gateway;
+        this.maxBatch = maxBatch;
+        for (MfaGateway.Channel channel : MfaGateway.Channel.values()) {
+            queues.put(channel, new ArrayBlockingQueue<>(QUEUE_CAPACITY));
+            limiters.put(channel, new RateLimiter(permitsPerSecond));
+            for (int i = 0; i < SENDERS_PER_CHANNEL; i++) {
+                senders.add(Thread.ofVirtual()
+                        .name("mfa-" + channel.name().toLowerCase() + "-" + (i + 1))
+                        .start(() -> run(channel)));
+            }
+        }
+    }
+
+    // Returns false if the channel's queue is full; never blocks
+    public boolean enqueue(String accountNo, String code, MfaGateway.Channel channel) {
+        if (!running) {
+            return false;
+        }
+        boolean accepted = queues.get(channel)
+                .offer(new MfaGateway.Delivery(accountNo, code, channel, System.nanoTime(), 1));
+        if (!accepted) {
+            dropped.increment();
+        }
+        return accepted;
+    }
+
+    private void run(MfaGateway.Channel channel) {
+        BlockingQueue<MfaGateway.Delivery> queue = queues.get(channel);
+        RateLimiter limiter = limiters.get(channel);
+        List<MfaGateway.Delivery> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                limiter.acquire(batch.size());
+                send(channel, batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(MfaGateway.Channel channel, List<MfaGateway.Delivery> batch) {
+        long start = System.nanoTime();
+        try {
+            gateway.send(channel, List.copyOf(batch));
+            gatewayLatency.recordSince(start);
+            for (MfaGateway.Delivery delivery : batch) {
+                deliveryLatency.recordSince(delivery.enqueuedAt());
+            }
+            delivered.add(batch.size());
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, channel + " delivery of " + batch.size() + " codes failed", e);
+            for (MfaGateway.Delivery delivery : batch) {
+                retry(delivery);
+            }
+        }
+    }
+
+    private void retry(MfaGateway.Delivery delivery) {
+        if (delivery.attempt() >= MAX_ATTEMPTS || !running) {
+            dropped.increment();
+            return;
+        }
+        retried.increment();
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << (delivery.attempt() - 1));
+        // A parked virtual thread per pending retry is cheap and keeps the senders unblocked
+        Thread.ofVirtual().name("mfa-retry").start(() -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!running || !queues.get(delivery.channel()).offer(delivery.nextAttempt())) {
+                dropped.increment();
+            }
+        });
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<MfaGateway.Delivery> queue : queues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public LatencyHistogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    public LatencyHistogram getGatewayLatency() {
+        return gatewayLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("delivered=%d retried=%d dropped=%d queue=%d delivery[%s] gateway[%s]",
+                delivered.sum(), retried.sum(), dropped.sum(), getQueueDepth(), deliveryLatency, gatewayLatency);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.List;
+
+// Outbound SMS/email provider. A batch always targets a single channel; throwing fails the whole
+// batch and MfaDeliveryDispatcher retries it.
+public interface MfaGateway {
+    enum Channel { SMS, EMAIL }
+
+    record Delivery(String accountNo, String code, Channel channel, long enqueuedAt, int attempt) {
+        Delivery nextAttempt() {
+            return new Delivery(accountNo, code, channel, enqueuedAt, attempt + 1);
+        }
+    }
+
+    void send(Channel channel, List<Delivery> batch) throws IOException;
+}
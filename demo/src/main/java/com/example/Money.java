@@ -0,0 +1,117 @@
+package com.example;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Money is carried as a long count of minor units (cents) everywhere in the app; this class
+// holds the arithmetic, parsing and formatting for that representation. The database column
+// keeps its decimal type: bind parameters are written as BIND_PARAM (cents / 100, exact in
+// MySQL's DECIMAL arithmetic) and balances are read back as whole cents via select(column).
+public final class Money {
+    public static final int SCALE = 2;
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+    public static final String BIND_PARAM = "? / 100";
+
+    private Money() {
+    }
+
+    public static String select(String column) {
+        return "ROUND(" + column + " * 100)";
+    }
+
+    public static void bind(PreparedStatement stmt, int index, long minorUnits) throws SQLException {
+        stmt.setLong(index, minorUnits);
+    }
+
+    public static long read(ResultSet rs, int columnIndex) throws SQLException {
+        return rs.getLong(columnIndex);
+    }
+
+    public static long read(ResultSet rs, String columnLabel) throws SQLException {
+        return rs.getLong(columnLabel);
+    }
+
+    public static long ofMajor(long majorUnits) {
+        return Math.multiplyExact(majorUnits, MINOR_UNITS_PER_MAJOR);
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    // Parses "123", "123.4" or "123.45" (optionally signed) without going through double or BigDecimal
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+
+        long units = 0;
+        int fractionDigits = -1;
+        boolean sawDigit = false;
+        try {
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '.') {
+                    if (fractionDigits >= 0) {
+                        throw new NumberFormatException("Invalid amount: " + text);
+                    }
+                    fractionDigits = 0;
+                    continue;
+                }
+                if (c < '0' || c > '9') {
+                    throw new NumberFormatException("Invalid amount: " + text);
+                }
+                if (fractionDigits >= 0 && ++fractionDigits > SCALE) {
+                    throw new NumberFormatException("Too many decimal places: " + text);
+                }
+                units = Math.addExact(Math.multiplyExact(units, 10), c - '0');
+                sawDigit = true;
+            }
+            if (!sawDigit) {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+            for (int f = Math.max(fractionDigits, 0); f < SCALE; f++) {
+                units = Math.multiplyExact(units, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        return negative ? -units : units;
+    }
+
+    public static String format(long minorUnits) {
+        return appendTo(new StringBuilder(24), minorUnits).toString();
+    }
+
+    public static StringBuilder appendTo(StringBuilder sb, long minorUnits) {
+        long major = minorUnits / MINOR_UNITS_PER_MAJOR;
+        int minor = (int) Math.abs(minorUnits % MINOR_UNITS_PER_MAJOR);
+        if (minorUnits < 0) {
+            sb.append('-');
+        }
+        sb.append(Math.abs(major)).append('.');
+        if (minor < 10) {
+            sb.append('0');
+        }
+        return sb.append(minor);
+    }
+}
@@ -1,35 +1,38 @@
 package com.example;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.KeySpec;
-import java.util.Arrays;
-
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
+import java.util.concurrent.CompletableFuture;
 
 public class PasswordEncryptionService {
     private static final int ITERATIONS = 20000;
     private static final int KEY_LENGTH = 256;
-    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final PasswordHashingPool hashingPool = new PasswordHashingPool();
 
     public static boolean authenticate(String attemptedPassword, byte[] encryptedPassword, byte[] salt)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        byte[] encryptedAttemptedPassword = getEncryptedPassword(attemptedPassword, salt);
-        return Arrays.equals(encryptedPassword, encryptedAttemptedPassword);
+        return Pbkdf2Engine.current().matches(attemptedPassword, salt, ITERATIONS, encryptedPassword);
+    }
+
+    // Runs authenticate() on the hashing pool; fails with RejectedExecutionException when overloaded.
+    public static CompletableFuture<Boolean> authenticateAsync(String attemptedPassword, byte[] encryptedPassword,
+                                                               byte[] salt) {
+        return hashingPool.submit(() -> authenticate(attemptedPassword, encryptedPassword, salt));
+    }
+
+    public static CompletableFuture<byte[]> getEncryptedPasswordAsync(String password, byte[] salt) {
+        return hashingPool.submit(() -> getEncryptedPassword(password, salt));
     }
 
     public static byte[] getEncryptedPassword(String password, byte[] salt)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, KEY_LENGTH);
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(ALGORITHM);
-        return factory.generateSecret(spec).getEncoded();
+        return Pbkdf2Engine.current().derive(password, salt, ITERATIONS, KEY_LENGTH);
+    }
+
+    public static byte[] generateSalt() {
+        return SaltProvider.nextSalt();
     }
 
-    public static byte[] generateSalt() throws NoSuchAlgorithmException {
-        SecureRandom random = SecureRandom.getInstanceStrong();
-        byte[] salt = new byte[16];
-        random.nextBytes(salt);
-        return salt;
+    public static PasswordHashingPool getHashingPool() {
+        return hashingPool;
     }
 }
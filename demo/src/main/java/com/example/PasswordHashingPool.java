@@ -0,0 +1,93 @@
+package com.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed pool of platform threads dedicated to PBKDF2 work. Admission is bounded so a
+// login storm is rejected up front instead of queueing behind every core.
+public class PasswordHashingPool implements AutoCloseable {
+    private static final int DEFAULT_QUEUE_PER_THREAD = 32;
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram hashLatency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+
+    public PasswordHashingPool() {
+        this(Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * DEFAULT_QUEUE_PER_THREAD);
+    }
+
+    public PasswordHashingPool(int threads, int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hashing-" + threadIds.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.prestartAllCoreThreads();
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                queueWait.record(start - enqueuedAt);
+                try {
+                    result.complete(task.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    hashLatency.recordSince(start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getHashLatency() {
+        return hashLatency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("threads=%d queue=%d/%d rejected=%d queueWait[%s] hash[%s]",
+                executor.getPoolSize(), getQueueDepth(), queueCapacity, getRejectedCount(),
+                queueWait, hashLatency);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+
+// PBKDF2-HMAC-SHA256 (RFC 8018 / RFC 2104) over a cached MessageDigest, one engine per thread.
+// Produces the same output as SecretKeyFactory "PBKDF2WithHmacSHA256" but skips the provider
+// lookup, never copies the password into a char[], and runs the iteration loop without
+// allocating: javax.crypto.Mac returns a fresh array from every doFinal, MessageDigest can
+// digest into a caller-supplied buffer. All key material is zeroed after each call.
+final class Pbkdf2Engine {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BLOCK_SIZE = 64;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+    private static final ThreadLocal<Pbkdf2Engine> engines = ThreadLocal.withInitial(Pbkdf2Engine::create);
+
+    private final MessageDigest digest;
+    private final int digestLength;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final byte[] innerPad = new byte[BLOCK_SIZE];
+    private final byte[] outerPad = new byte[BLOCK_SIZE];
+    private final byte[] blockIndex = new byte[4];
+    private final byte[] inner;
+    private final byte[] u;
+    private final byte[] t;
+    private final byte[] derived;
+    private ByteBuffer passwordBytes = ByteBuffer.allocate(BLOCK_SIZE);
+
+    private Pbkdf2Engine(MessageDigest digest) {
+        this.digest = digest;
+        this.digestLength = digest.getDigestLength();
+        this.inner = new byte[digestLength];
+        this.u = new byte[digestLength];
+        this.t = new byte[digestLength];
+        this.derived = new byte[digestLength * 4];
+    }
+
+    private static Pbkdf2Engine create() {
+        try {
+            return new Pbkdf2Engine(MessageDigest.getInstance(DIGEST_ALGORITHM));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+        }
+    }
+
+    static Pbkdf2Engine current() {
+        return engines.get();
+    }
+
+    byte[] derive(String password, byte[] salt, int iterations, int keyLengthBits)
+            throws InvalidKeySpecException {
+        int keyLength = keyLengthBits / 8;
+        byte[] key = new byte[keyLength];
+        deriveInto(password, salt, iterations, key, keyLength);
+        return key;
+    }
+
+    // Constant-time comparison of a freshly derived key against the stored one
+    boolean matches(String password, byte[] salt, int iterations, byte[] expected)
+            throws InvalidKeySpecException {
+        if (expected == null || expected.length == 0) {
+            return false;
+        }
+        byte[] out = expected.length <= derived.length ? derived : new byte[expected.length];
+        try {
+            deriveInto(password, salt, iterations, out, expected.length);
+            int diff = 0;
+            for (int i = 0; i < expected.length; i++) {
+                diff |= out[i] ^ expected[i];
+            }
+            return diff == 0;
+        } finally {
+            Arrays.fill(out, (byte) 0);
+        }
+    }
+
+    private void deriveInto(String password, byte[] salt, int iterations, byte[] out, int length)
+            throws InvalidKeySpecException {
+        if (iterations <= 0 || length <= 0) {
+            throw new InvalidKeySpecException("Iteration count and key length must be positive");
+        }
+        try {
+            initPads(password);
+            int offset = 0;
+            for (int block = 1; offset < length; block++) {
+                blockIndex[0] = (byte) (block >>> 24);
+                blockIndex[1] = (byte) (block >>> 16);
+                blockIndex[2] = (byte) (block >>> 8);
+                blockIndex[3] = (byte) block;
+
+                // U1 = HMAC(P, S || INT(block))
+                digest.update(innerPad);
+                digest.update(salt);
+                digest.update(blockIndex);
+                finishHmac();
+                System.arraycopy(u, 0, t, 0, digestLength);
+
+                // Ui = HMAC(P, Ui-1), T = U1 ^ U2 ^ ... ^ Uc
+                for (int i = 1; i < iterations; i++) {
+                    digest.update(innerPad);
+                    digest.update(u);
+                    finishHmac();
+                    for (int j = 0; j < digestLength; j++) {
+                        t[j] ^= u[j];
+                    }
+                }
+
+                int chunk = Math.min(digestLength, length - offset);
+                System.arraycopy(t, 0, out, offset, chunk);
+                offset += chunk;
+            }
+        } catch (DigestException e) {
+            throw new InvalidKeySpecException("Could not compute " + DIGEST_ALGORITHM, e);
+        } finally {
+            digest.reset();
+            Arrays.fill(innerPad, (byte) 0);
+            Arrays.fill(outerPad, (byte) 0);
+            Arrays.fill(inner, (byte) 0);
+            Arrays.fill(u, (byte) 0);
+            Arrays.fill(t, (byte) 0);
+        }
+    }
+
+    // Completes HMAC = H(K ^ opad || H(K ^ ipad || message)); the inner hash is already in progress
+    private void finishHmac() throws DigestException {
+        digest.digest(inner, 0, digestLength);
+        digest.update(outerPad);
+        digest.update(inner);
+        digest.digest(u, 0, digestLength);
+    }
+
+    private void initPads(String password) throws DigestException {
+        passwordBytes.clear();
+        encoder.reset();
+        CharBuffer chars = CharBuffer.wrap(password);
+        while (encoder.encode(chars, passwordBytes, true).isOverflow()) {
+            growPasswordBuffer();
+        }
+        while (encoder.flush(passwordBytes).isOverflow()) {
+            growPasswordBuffer();
+        }
+
+        byte[] key = passwordBytes.array();
+        int keyLength = passwordBytes.position();
+        if (keyLength > BLOCK_SIZE) {
+            // Keys longer than the block size are replaced by their hash
+            digest.update(key, 0, keyLength);
+            Arrays.fill(key, 0, keyLength, (byte) 0);
+            keyLength = digest.digest(key, 0, digestLength);
+        }
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            byte k = i < keyLength ? key[i] : 0;
+            innerPad[i] = (byte) (k ^ IPAD);
+            outerPad[i] = (byte) (k ^ OPAD);
+        }
+        Arrays.fill(key, 0, keyLength, (byte) 0);
+    }
+
+    private void growPasswordBuffer() {
+        ByteBuffer larger = ByteBuffer.allocate(passwordBytes.capacity() * 2);
+        passwordBytes.flip();
+        larger.put(passwordBytes);
+        Arrays.fill(passwordBytes.array(), (byte) 0);
+        passwordBytes = larger;
+    }
+}
@@ -0,0 +1,321 @@
+package com.example;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Group commit for deposits and withdrawals. Sessions enqueue postings; poster threads collect
+// up to maxBatch of them (waiting at most the linger time for more to arrive) and apply the
+// whole group as one JDBC batch in a single transaction, so many postings share one commit.
+// Each caller still gets its own TransactionEngine.Result.
+public class PostingEngine implements AutoCloseable {
+    public static final int DEFAULT_MAX_BATCH = 64;
+    public static final long DEFAULT_LINGER_MICROS = 1000;
+    private static final int DEFAULT_POSTERS = 2;
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int MAX_ATTEMPTS = 3;
+
+    // One statement for both directions keeps a batch in submission order; deposits skip the funds check
+    private static final String POST_SQL = "UPDATE customers SET balance = balance + " + Money.BIND_PARAM
+            + " WHERE accountNo = ? AND (? OR balance >= " + Money.BIND_PARAM + ")";
+
+    private static final Logger logger = Logger.getLogger(PostingEngine.class.getName());
+
+    private final ConnectionPool pool;
+    private final TransactionEngine transactions;
+    private final BalanceCache cache;
+    private final TransactionJournal journal;
+    private final int maxBatch;
+    private volatile long lingerNanos;
+    private final BlockingQueue<Posting> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final List<Thread> posters = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram batchSizes = new LatencyHistogram();
+    private final LongAdder posted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private record Posting(String accountNo, long amount, boolean isDeposit, long enqueuedAt,
+                           CompletableFuture<TransactionEngine.Result> result) {
+        long delta() {
+            return isDeposit ? amount : -amount;
+        }
+    }
+
+    public PostingEngine(ConnectionPool pool, TransactionEngine transactions) {
+        this(pool, transactions, DEFAULT_POSTERS, DEFAULT_MAX_BATCH, DEFAULT_LINGER_MICROS);
+    }
+
+    public PostingEngine(ConnectionPool pool, TransactionEngine transactions, int posterThreads, int maxBatch,
+                         long lingerMicros) {
+        this.pool = pool;
+        this.transactions = transactions;
+        this.cache = transactions.getCache();
+        this.journal = transactions.getJournal();
+        this.maxBatch = maxBatch;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        for (int i = 0; i < posterThreads; i++) {
+            Thread poster = new Thread(this::run, "posting-engine-" + (i + 1));
+            poster.setDaemon(true);
+            poster.start();
+            posters.add(poster);
+        }
+    }
+
+    public void setLingerMicros(long lingerMicros) {
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+    }
+
+    public CompletableFuture<TransactionEngine.Result> submit(String accountNo, long amount, boolean isDeposit) {
+        CompletableFuture<TransactionEngine.Result> result = new CompletableFuture<>();
+        if (!running || !queue.offer(new Posting(accountNo, amount, isDeposit, System.nanoTime(), result))) {
+            result.completeExceptionally(new RejectedExecutionException("Posting queue is full"));
+        }
+        return result;
+    }
+
+    public TransactionEngine.Result post(String accountNo, long amount, boolean isDeposit) throws SQLException {
+        try {
+            return submit(accountNo, amount, isDeposit).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private void run() {
+        List<Posting> batch = new ArrayList<>(maxBatch);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    if (queue.drainTo(batch, maxBatch - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Posting next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(batch);
+            } catch (RuntimeException e) {
+                // Fail this group rather than the poster: its callers are waiting in join()
+                logger.log(Level.SEVERE, "Batch of " + batch.size() + " postings failed", e);
+                for (Posting posting : batch) {
+                    posting.result().completeExceptionally(e);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Posting> batch) {
+        // A stable sort by account gives every batch the same lock order (no deadlocks between
+        // posters) while keeping the postings for any one account in submission order
+        batch.sort(Comparator.comparing(Posting::accountNo));
+        batches.increment();
+        batchSizes.record(batch.size());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                TransactionEngine.Result[] results = applyBatch(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    complete(batch.get(i), results[i]);
+                }
+                return;
+            } catch (SQLException e) {
+                if (attempt < MAX_ATTEMPTS && TransactionEngine.isRetryable(e)) {
+                    continue;
+                }
+                logger.log(Level.WARNING, "Batch of " + batch.size() + " postings failed, posting individually", e);
+                break;
+            }
+        }
+
+        // Isolate the failing posting so the rest of the group still goes through
+        fallbacks.increment();
+        for (Posting posting : batch) {
+            try {
+                complete(posting, transactions.apply(posting.accountNo(), posting.amount(), posting.isDeposit()));
+            } catch (SQLException | RuntimeException e) {
+                posting.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void complete(Posting posting, TransactionEngine.Result result) {
+        posted.increment();
+        latency.recordSince(posting.enqueuedAt());
+        posting.result().complete(result);
+    }
+
+    private TransactionEngine.Result[] applyBatch(List<Posting> batch) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            int journaled = 0;
+            TransactionEngine.Result[] results = null;
+            try {
+                int[] counts;
+                try (PreparedStatement stmt = conn.prepareStatement(POST_SQL)) {
+                    for (Posting posting : batch) {
+                        Money.bind(stmt, 1, posting.delta());
+                        stmt.setString(2, posting.accountNo());
+                        stmt.setBoolean(3, posting.isDeposit());
+                        Money.bind(stmt, 4, posting.amount());
+                        stmt.addBatch();
+                    }
+                    counts = stmt.executeBatch();
+                }
+                Map<String, Long> balances = readBalances(conn, batch);
+                cacheFinalBalances(batch, counts, balances);
+                results = resolve(batch, counts, balances);
+                for (; journaled < batch.size(); journaled++) {
+                    if (results[journaled].status() == TransactionEngine.Status.SUCCESS) {
+                        TransactionEngine.journal(journal, batch.get(journaled).accountNo(),
+                                batch.get(journaled).delta(), results[journaled].balance());
+                    }
+                }
+                journal.sync(); // one flush covers the whole group
+                conn.commit();
+                return results;
+            } catch (SQLException | IOException | RuntimeException e) {
+                for (Posting posting : batch) {
+                    cache.invalidate(posting.accountNo());
+                }
+                conn.rollback();
+                for (int i = journaled - 1; i >= 0; i--) {
+                    if (results[i].status() == TransactionEngine.Status.SUCCESS) {
+                        long delta = batch.get(i).delta();
+                        TransactionEngine.reverse(journal, batch.get(i).accountNo(), delta,
+                                results[i].balance() - delta);
+                    }
+                }
+                if (e instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e instanceof SQLException sqlException ? sqlException
+                        : new SQLException("Transaction journal write failed", e);
+            }
+        }
+    }
+
+    // Only accounts this batch actually updated are row-locked, so only their balances are
+    // safe to publish before the commit
+    private void cacheFinalBalances(List<Posting> batch, int[] counts, Map<String, Long> balances) {
+        for (int i = 0; i < batch.size(); i++) {
+            Long balance = balances.get(batch.get(i).accountNo());
+            if (counts[i] > 0 && balance != null) {
+                cache.put(batch.get(i).accountNo(), balance);
+            }
+        }
+    }
+
+    private static Map<String, Long> readBalances(Connection conn, List<Posting> batch) throws SQLException {
+        List<String> accounts = new ArrayList<>();
+        for (Posting posting : batch) {
+            if (accounts.isEmpty() || !accounts.get(accounts.size() - 1).equals(posting.accountNo())) {
+                accounts.add(posting.accountNo());
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT accountNo, ").append(Money.select("balance"))
+                .append(" FROM customers WHERE accountNo IN (");
+        for (int i = 0; i < accounts.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        Map<String, Long> balances = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < accounts.size(); i++) {
+                stmt.setString(i + 1, accounts.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    balances.put(rs.getString(1), Money.read(rs, 2));
+                }
+            }
+        }
+        return balances;
+    }
+
+    // Walks the batch backwards from each account's final balance to recover the balance
+    // each individual posting left behind
+    private static TransactionEngine.Result[] resolve(List<Posting> batch, int[] counts, Map<String, Long> balances) {
+        TransactionEngine.Result[] results = new TransactionEngine.Result[batch.size()];
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            Posting posting = batch.get(i);
+            Long balance = balances.get(posting.accountNo());
+            if (balance == null) {
+                results[i] = new TransactionEngine.Result(TransactionEngine.Status.ACCOUNT_NOT_FOUND, 0);
+            } else if (counts[i] > 0) {
+                results[i] = new TransactionEngine.Result(TransactionEngine.Status.SUCCESS, balance);
+                balances.put(posting.accountNo(), balance - posting.delta());
+            } else {
+                results[i] = new TransactionEngine.Result(TransactionEngine.Status.INSUFFICIENT_FUNDS, balance);
+            }
+        }
+        return results;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public LatencyHistogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("posted=%d batches=%d fallbacks=%d queue=%d linger=%dus meanBatch=%.1f maxBatch=%d "
+                        + "latency[%s]", posted.sum(), batches.sum(), fallbacks.sum(), getQueueDepth(),
+                TimeUnit.NANOSECONDS.toMicros(lingerNanos), batchSizes.mean(), batchSizes.max(), latency);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        for (Thread poster : posters) {
+            poster.interrupt();
+        }
+        Posting posting;
+        while ((posting = queue.poll()) != null) {
+            posting.result().completeExceptionally(new RejectedExecutionException("Posting engine closed"));
+        }
+    }
+}
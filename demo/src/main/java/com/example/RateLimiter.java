@@ -0,0 +1,47 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Smooth rate limit: each permit is reserved a fixed interval after the previous one. Idle
+// time is not banked beyond one second's worth, so a quiet caller can burst only briefly.
+final class RateLimiter {
+    private final long nanosPerPermit;
+    private final long maxBurstNanos;
+    private final AtomicLong nextFree = new AtomicLong(System.nanoTime());
+
+    RateLimiter(int permitsPerSecond) {
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.maxBurstNanos = TimeUnit.SECONDS.toNanos(1);
+    }
+
+    // Waits for the permits to become free
+    void acquire(int permits) throws InterruptedException {
+        long now = System.nanoTime();
+        long start;
+        long current;
+        do {
+            current = nextFree.get();
+            start = Math.max(current, now - maxBurstNanos);
+        } while (!nextFree.compareAndSet(current, start + permits * nanosPerPermit));
+        long wait = start - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    // Takes one permit if it is free now; never waits
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start;
+        long current;
+        do {
+            current = nextFree.get();
+            start = Math.max(current, now - maxBurstNanos);
+            if (start > now) {
+                return false;
+            }
+        } while (!nextFree.compareAndSet(current, start + nanosPerPermit));
+        return true;
+    }
+}
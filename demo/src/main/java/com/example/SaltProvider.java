@@ -0,0 +1,92 @@
+package com.example;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Source of salts and nonces. Uses the non-blocking DRBG rather than getInstanceStrong(),
+// which may be backed by a blocking /dev/random and was re-instantiated on every call.
+public class SaltProvider {
+    public static final int SALT_LENGTH = 16;
+    private static final int BUFFER_CAPACITY = 4096;
+    private static final String ALGORITHM = "DRBG";
+
+    private static final SecureRandom shared = newRandom();
+    private static final ThreadLocal<SecureRandom> perThread = ThreadLocal.withInitial(SaltProvider::newRandom);
+    private static final BlockingQueue<byte[]> prefilled = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
+    private static final LatencyHistogram generationLatency = new LatencyHistogram();
+    private static final LongAdder bufferHits = new LongAdder();
+    private static final LongAdder bufferMisses = new LongAdder();
+
+    static {
+        Thread refill = new Thread(SaltProvider::refill, "salt-refill");
+        refill.setDaemon(true);
+        refill.start();
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    // Platform threads get their own generator; virtual threads are too numerous and short-lived
+    // to seed one each, so they share the (thread-safe) common instance.
+    public static SecureRandom current() {
+        return Thread.currentThread().isVirtual() ? shared : perThread.get();
+    }
+
+    public static byte[] nextSalt() {
+        byte[] salt = prefilled.poll();
+        if (salt != null) {
+            bufferHits.increment();
+            return salt;
+        }
+        bufferMisses.increment();
+        return generate(current());
+    }
+
+    public static void nextBytes(byte[] bytes) {
+        current().nextBytes(bytes);
+    }
+
+    public static int nextInt(int bound) {
+        return current().nextInt(bound);
+    }
+
+    private static byte[] generate(SecureRandom random) {
+        long start = System.nanoTime();
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        generationLatency.recordSince(start);
+        return salt;
+    }
+
+    private static void refill() {
+        SecureRandom random = perThread.get();
+        try {
+            while (true) {
+                prefilled.put(generate(random));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static int getBufferedCount() {
+        return prefilled.size();
+    }
+
+    public static LatencyHistogram getGenerationLatency() {
+        return generationLatency;
+    }
+
+    public static String stats() {
+        return String.format("buffered=%d/%d hits=%d misses=%d generation[%s]", getBufferedCount(),
+                BUFFER_CAPACITY, bufferHits.sum(), bufferMisses.sum(), generationLatency);
+    }
+}
@@ -1,25 +1,259 @@
 package com.example;
 
-import java.security.NoSuchAlgorithmException;
-import java.security.spec.InvalidKeySpecException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 
-public class SecureBankingApp 
+public class SecureBankingApp
 {
     private static final String URL = "jdbc:mysql://localhost:3306/bank_system";
     private static final String USER = "root";
     private static final String PASSWORD = "password";
+    private static final int POOL_SIZE = 10;
+    // Opened by the first command that uses accounts; see store()
+    private static volatile TransactionJournal journal;
+    private static volatile AccountStore store;
+    private static final MfaChallengeStore challenges = new MfaChallengeStore();
+    private static final LoginRateLimiter loginLimiter = new LoginRateLimiter(
+            Integer.getInteger("bank.login.accountLimit", LoginRateLimiter.DEFAULT_ACCOUNT_LIMIT),
+            Integer.getInteger("bank.login.sourceLimit", LoginRateLimiter.DEFAULT_SOURCE_LIMIT),
+            Long.getLong("bank.login.windowSeconds", LoginRateLimiter.DEFAULT_WINDOW_SECONDS), 65_536);
+    private static final SessionTokens sessionTokens = createSessionTokens();
     private static final Scanner scanner = new Scanner(System.in);
-    private static String currentAccountNo = null;
-    private static String mfaCode = null;
+    private static final String BUSY_MESSAGE = "System busy, please try again later";
+    private static final int STATEMENT_LENGTH = 10;
+
+    private static final Metrics metrics = Metrics.global();
+    private static final LatencyHistogram createAccountLatency = metrics.timer("create_account");
+    private static final LatencyHistogram loginLatency = metrics.timer("login");
+    private static final LatencyHistogram loginLookupLatency = metrics.timer("login_lookup");
+    private static final LatencyHistogram loginHashLatency = metrics.timer("login_pbkdf2");
+    private static final LatencyHistogram loginMfaLatency = metrics.timer("login_mfa");
+    private static final LatencyHistogram checkBalanceLatency = metrics.timer("check_balance");
+    private static final LatencyHistogram updateBalanceLatency = metrics.timer("update_balance");
+    private static final LatencyHistogram transferLatency = metrics.timer("transfer");
+    private static final LatencyHistogram resumeLatency = metrics.timer("resume_session");
+    private static final LongAdder loginFailures = metrics.counter("login_failures");
+    private static final LongAdder loginThrottled = metrics.counter("login_throttled");
+    private static final LongAdder insufficientFunds = metrics.counter("update_balance_insufficient_funds");
+    private static final LongAdder busyRejections = metrics.counter("busy_rejections");
+
+    // Opens the journal and the account store on first use. Only the commands that write the
+    // journal get here: a bulk import inserts rows directly and runs beside a server.
+    private static AccountStore store() {
+        AccountStore opened = store;
+        if (opened != null) {
+            return opened;
+        }
+        synchronized (SecureBankingApp.class) {
+            if (store == null) {
+                journal = openJournal();
+                store = createStore();
+            }
+            return store;
+        }
+    }
+
+    private static TransactionJournal journal() {
+        store();
+        return journal;
+    }
+
+    // A second process writing the journal (typically "eod" beside a running server) is refused
+    // rather than interleaving its records with the server's
+    private static TransactionJournal openJournal() {
+        Path directory = Path.of(System.getProperty("bank.journal.dir", "journal"));
+        try {
+            return new TransactionJournal(directory);
+        } catch (IllegalStateException e) {
+            System.out.println("Transaction journal " + directory + " is in use by another process. "
+                    + "Stop it first, or run end-of-day inside the server with -Dbank.eod.time=HH:mm");
+            System.exit(1);
+            throw e;
+        }
+    }
+
+    // -Dbank.store=memory runs without MySQL; see InMemoryAccountStore.
+    // -Dbank.shards=<jdbc url>,<jdbc url>,... spreads accounts over several MySQL primaries.
+    private static AccountStore createStore() {
+        if ("memory".equals(System.getProperty("bank.store", "jdbc"))) {
+            String snapshot = System.getProperty("bank.store.snapshot");
+            return new InMemoryAccountStore(journal, snapshot == null ? null : Path.of(snapshot),
+                    Long.getLong("bank.store.snapshotSeconds", 60));
+        }
+        String shardUrls = System.getProperty("bank.shards");
+        if (shardUrls == null) {
+            return createJdbcStore(URL, "");
+        }
+
+        List<JdbcAccountStore> shards = new ArrayList<>();
+        String[] urls = shardUrls.split(",");
+        for (int i = 0; i < urls.length; i++) {
+            shards.add(createJdbcStore(urls[i].trim(), "." + i));
+        }
+        ShardedAccountStore sharded = new ShardedAccountStore(shards);
+        // After a shard list change that an online addShard() did not complete
+        if (Boolean.getBoolean("bank.shards.rebalance")) {
+            try {
+                sharded.rebalance();
+            } catch (SQLException e) {
+                SecureExceptionHandler.handle(e, "Shard rebalance failed");
+            }
+        }
+        return sharded;
+    }
+
+    // -Dbank.filter.expectedAccounts=0 turns off the nonexistent-account filter
+    private static JdbcAccountStore createJdbcStore(String url, String filterSuffix) {
+        JdbcAccountStore jdbcStore = new JdbcAccountStore(new ConnectionPool(url, USER, PASSWORD, POOL_SIZE),
+                new BalanceCache(Integer.getInteger("bank.cache.size", 100_000)), journal,
+                Long.getLong("bank.posting.lingerMicros", PostingEngine.DEFAULT_LINGER_MICROS));
+        long expectedAccounts = Long.getLong("bank.filter.expectedAccounts", 10_000_000);
+        if (expectedAccounts > 0) {
+            Path snapshot = Path.of(System.getProperty("bank.filter.snapshot", "accounts.bloom") + filterSuffix);
+            try {
+                jdbcStore.enableAccountFilter(snapshot, expectedAccounts, AccountBloomFilter.DEFAULT_FALSE_POSITIVE_RATE,
+                        Integer.getInteger("bank.filter.fallbacksPerSecond",
+                                JdbcAccountStore.DEFAULT_FILTER_FALLBACKS_PER_SECOND));
+            } catch (SQLException e) {
+                SecureExceptionHandler.handle(e, "Account filter unavailable, every lookup goes to the database");
+            }
+        }
+        return jdbcStore;
+    }
+
+    // -Dbank.session.keyFile holds a base64 secret shared by every server, so any of them can
+    // resume a session another issued. Without it each process signs with keys of its own and
+    // rotates them every -Dbank.session.rotateMinutes.
+    private static SessionTokens createSessionTokens() {
+        Duration ttl = Duration.ofMinutes(
+                Long.getLong("bank.session.ttlMinutes", SessionTokens.DEFAULT_TTL.toMinutes()));
+        String keyFile = System.getProperty("bank.session.keyFile");
+        if (keyFile != null) {
+            try {
+                return new SessionTokens(ttl, Base64.getDecoder().decode(Files.readString(Path.of(keyFile)).trim()));
+            } catch (IOException | IllegalArgumentException e) {
+                SecureExceptionHandler.handle(e, "Session key unavailable, tokens will only be valid on this server");
+            }
+        }
+        SessionTokens tokens = new SessionTokens(ttl);
+        long rotateMinutes = Long.getLong("bank.session.rotateMinutes", 60);
+        if (rotateMinutes > 0) {
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "session-key-rotation");
+                t.setDaemon(true);
+                return t;
+            }).scheduleAtFixedRate(tokens::rotate, rotateMinutes, rotateMinutes, TimeUnit.MINUTES);
+        }
+        return tokens;
+    }
 
     public static void main(String[] args) {
+        MetricsExporter exporter = startMetricsExporter();
+        try {
+            run(args);
+        } finally {
+            exporter.close();
+        }
+    }
+
+    // -Dbank.metrics.port serves GET /metrics on localhost; -Dbank.metrics.file dumps periodically
+    private static MetricsExporter startMetricsExporter() {
+        metrics.registerComponent("store", () -> store);
+        metrics.registerComponent("hashing", PasswordEncryptionService::getHashingPool);
+        metrics.registerComponent("mfa_challenges", () -> challenges);
+        metrics.registerComponent("login_limiter", () -> loginLimiter);
+        metrics.registerComponent("session_tokens", () -> sessionTokens);
+        metrics.registerComponent("mfa_delivery", MFAService::getDispatcher);
+        metrics.registerComponent("journal", () -> journal);
+        metrics.registerComponent("error_reporter", ErrorReporter::global);
+
+        MetricsExporter exporter = new MetricsExporter(metrics);
+        Integer port = Integer.getInteger("bank.metrics.port");
+        if (port != null) {
+            try {
+                exporter.serve(port);
+            } catch (IOException e) {
+                SecureExceptionHandler.handle(e, "Metrics endpoint unavailable");
+            }
+        }
+        String file = System.getProperty("bank.metrics.file");
+        if (file != null) {
+            exporter.dumpTo(Path.of(file), Long.getLong("bank.metrics.intervalSeconds", 10));
+        }
+        return exporter;
+    }
+
+    private static void run(String[] args) {
+        if (args.length > 0 && args[0].equals("server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : BankingServer.DEFAULT_PORT;
+            store(); // before listening, so a journal held by another process stops the start
+            ScheduledExecutorService endOfDay = scheduleEndOfDay();
+            try (BankingServer server = new BankingServer(port)) {
+                server.serve();
+            } catch (IOException e) {
+                SecureExceptionHandler.handle(e, "Server error");
+            } finally {
+                if (endOfDay != null) {
+                    endOfDay.shutdownNow();
+                }
+                shutdown();
+            }
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("eod")) {
+            try {
+                runEndOfDay(args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now());
+            } catch (Exception e) {
+                SecureExceptionHandler.handle(e, "End-of-day run failed");
+            } finally {
+                shutdown();
+            }
+            return;
+        }
+
+        if (args.length > 1 && args[0].equals("import")) {
+            int chunkSize = args.length > 2 ? Integer.parseInt(args[2]) : BulkAccountImporter.DEFAULT_CHUNK_SIZE;
+            try {
+                if ("memory".equals(System.getProperty("bank.store", "jdbc"))
+                        || System.getProperty("bank.shards") != null) {
+                    System.out.println("Bulk import requires the JDBC account store");
+                } else {
+                    try (ConnectionPool pool = new ConnectionPool(URL, USER, PASSWORD, POOL_SIZE)) {
+                        new BulkAccountImporter(pool, chunkSize, new PrintWriter(System.out, true))
+                                .importFile(Path.of(args[1]));
+                    }
+                }
+            } catch (Exception e) {
+                SecureExceptionHandler.handle(e, "Import failed");
+            } finally {
+                shutdown();
+            }
+            return;
+        }
+
+        store();
+        Session session = new Session(new PrintWriter(System.out, true), "console");
         System.out.println("Welcome to Secure Bank System");
 
         while (true) {
@@ -32,10 +266,11 @@ public class SecureBankingApp
                 int choice = Integer.parseInt(scanner.nextLine());
 
                 switch (choice) {
-                    case 1 -> createAccount();
-                    case 2 -> login();
+                    case 1 -> createAccount(session);
+                    case 2 -> login(session);
                     case 3 -> {
                         System.out.println("Thank you for using Secure Bank System. Goodbye!");
+                        shutdown();
                         return;
                     }
                     default -> System.out.println("Invalid option. Try again.");
@@ -46,7 +281,88 @@ public class SecureBankingApp
         }
     }
 
-    public static void createAccount() {
+    // Runs the batch on every MySQL shard in turn; rerunning a date finishes what is left
+    private static void runEndOfDay(LocalDate runDate) throws SQLException, InterruptedException {
+        List<JdbcAccountStore> jdbcStores = new ArrayList<>();
+        AccountStore accounts = store();
+        if (accounts instanceof JdbcAccountStore jdbcStore) {
+            jdbcStores.add(jdbcStore);
+        } else if (accounts instanceof ShardedAccountStore sharded) {
+            for (AccountStore shard : sharded.getShards()) {
+                if (shard instanceof JdbcAccountStore jdbcShard) {
+                    jdbcStores.add(jdbcShard);
+                }
+            }
+        }
+        if (jdbcStores.isEmpty()) {
+            System.out.println("End-of-day processing requires the JDBC account store");
+            return;
+        }
+
+        EndOfDayBatch.Rates rates = new EndOfDayBatch.Rates(Integer.getInteger("bank.eod.interestBasisPoints", 100),
+                Money.parse(System.getProperty("bank.eod.fee", "0.00")),
+                Money.parse(System.getProperty("bank.eod.feeWaivedFrom", "0.00")));
+        // Two connections per worker; the default leaves two of the pool for online traffic
+        int threads = Integer.getInteger("bank.eod.threads",
+                Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), (POOL_SIZE - 2) / 2)));
+        for (JdbcAccountStore jdbcStore : jdbcStores) {
+            new EndOfDayBatch(jdbcStore, rates, threads,
+                    Integer.getInteger("bank.eod.partitions", EndOfDayBatch.DEFAULT_PARTITIONS),
+                    Integer.getInteger("bank.eod.chunkSize", EndOfDayBatch.DEFAULT_CHUNK_SIZE),
+                    new PrintWriter(System.out, true)).run(runDate);
+        }
+    }
+
+    // -Dbank.eod.time=HH:mm runs the batch inside the server every day, so the balances it
+    // posts reach this process's balance cache. A separate "eod" process cannot update the
+    // cache, and is refused while the server holds the journal lock
+    private static ScheduledExecutorService scheduleEndOfDay() {
+        String time = System.getProperty("bank.eod.time");
+        if (time == null) {
+            return null;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(LocalTime.parse(time));
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "end-of-day");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                runEndOfDay(LocalDate.now());
+            } catch (Exception e) {
+                SecureExceptionHandler.handle(e, "End-of-day run failed");
+            }
+        }, Duration.between(now, next).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+
+    // For tools that run the application in-process, such as LoadGenerator
+    static AccountStore getStore() {
+        return store();
+    }
+
+    static void shutdown() {
+        if (store != null) {
+            store.close();
+        }
+        challenges.close();
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                SecureExceptionHandler.handle(e, "Error closing transaction journal");
+            }
+        }
+        MFAService.getDispatcher().close();
+        ErrorReporter.global().close();
+    }
+
+    private static void createAccount(Session session) {
         System.out.print("Enter Account Number (format: ABC12345): ");
         String accountNo = scanner.nextLine();
 
@@ -64,101 +380,57 @@ public class SecureBankingApp
         }
 
         System.out.print("Enter Initial Deposit: ");
-        try {
-            double balance = Double.parseDouble(scanner.nextLine());
-            
-            if (!InputValidator.validateAmount(balance)) {
-                System.out.println("Invalid amount");
-                return;
-            }
-
-            try {
-                byte[] salt = PasswordEncryptionService.generateSalt();
-                byte[] encryptedPassword = PasswordEncryptionService.getEncryptedPassword(password, salt);
-
-                String sql = "INSERT INTO customers (accountNo, password, salt, balance) VALUES (?, ?, ?, ?)";
-                try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-                     PreparedStatement stmt = conn.prepareStatement(sql)) {
-                    
-                    stmt.setString(1, accountNo);
-                    stmt.setBytes(2, encryptedPassword);
-                    stmt.setBytes(3, salt);
-                    stmt.setDouble(4, balance);
-                    
-                    stmt.executeUpdate();
-                    System.out.println("Account created successfully");
-                }
-            } catch (NoSuchAlgorithmException | InvalidKeySpecException | SQLException e) {
-                SecureExceptionHandler.handle(e, "Error creating account");
-            }
-        } catch (NumberFormatException e) {
-            System.out.println("Invalid amount format");
-        }
+        createAccount(session, accountNo, password, scanner.nextLine());
     }
 
-    public static void login() {
+    private static void login(Session session) {
         System.out.print("Enter Account Number: ");
         String accountNo = scanner.nextLine();
 
         System.out.print("Enter Password: ");
         String password = scanner.nextLine();
 
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT password, salt, balance FROM customers WHERE accountNo = ?")) {
-            
-            stmt.setString(1, accountNo);
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                byte[] storedPassword = rs.getBytes("password");
-                byte[] salt = rs.getBytes("salt");
-                
-                if (PasswordEncryptionService.authenticate(password, storedPassword, salt)) {
-                    mfaCode = MFAService.generateVerificationCode();
-                    if (MFAService.sendVerificationCode(accountNo, mfaCode)) {
-                        System.out.print("Enter Verification Code: ");
-                        String code = scanner.nextLine();
-                        
-                        if (MFAService.verifyCode(mfaCode, code)) {
-                            currentAccountNo = accountNo;
-                            System.out.println("Login successful!");
-                            showCustomerMenu();
-                        } else {
-                            System.out.println("Invalid verification code");
-                        }
-                    }
-                } else {
-                    System.out.println("Invalid credentials");
+        if (login(session, accountNo, password)) {
+            while (session.isAwaitingVerification()) {
+                System.out.print("Enter Verification Code: ");
+                if (verifyLogin(session, scanner.nextLine())) {
+                    showCustomerMenu(session);
                 }
-            } else {
-                System.out.println("Account not found");
             }
-        } catch (Exception e) {
-            SecureExceptionHandler.handle(e, "Login error");
         }
     }
 
-    private static void showCustomerMenu() {
-        while (currentAccountNo != null) {
+    private static void showCustomerMenu(Session session) {
+        while (session.isLoggedIn()) {
             System.out.println("\n1. Check Balance");
             System.out.println("2. Deposit");
             System.out.println("3. Withdraw");
-            System.out.println("4. Logout");
+            System.out.println("4. Statement");
+            System.out.println("5. Transfer");
+            System.out.println("6. Logout");
             System.out.print("Select an option: ");
 
             try {
                 int choice = Integer.parseInt(scanner.nextLine());
 
                 switch (choice) {
-                    case 1 -> checkBalance();
-                    case 2 -> deposit();
-                    case 3 -> withdraw();
-                    case 4 -> {
-                        currentAccountNo = null;
-                        mfaCode = null;
-                        System.out.println("Logged out successfully");
+                    case 1 -> checkBalance(session);
+                    case 2 -> {
+                        System.out.print("Enter deposit amount: ");
+                        deposit(session, scanner.nextLine());
+                    }
+                    case 3 -> {
+                        System.out.print("Enter withdrawal amount: ");
+                        withdraw(session, scanner.nextLine());
                     }
+                    case 4 -> printStatement(session);
+                    case 5 -> {
+                        System.out.print("Enter destination account: ");
+                        String toAccountNo = scanner.nextLine();
+                        System.out.print("Enter transfer amount: ");
+                        transfer(session, toAccountNo, scanner.nextLine());
+                    }
+                    case 6 -> logout(session);
                     default -> System.out.println("Invalid option");
                 }
             } catch (NumberFormatException e) {
@@ -167,95 +439,322 @@ public class SecureBankingApp
         }
     }
 
-    private static void checkBalance() {
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT balance FROM customers WHERE accountNo = ?")) {
-            
-            stmt.setString(1, currentAccountNo);
-            ResultSet rs = stmt.executeQuery();
+    public static void createAccount(Session session, String accountNo, String password, String initialDeposit) {
+        PrintWriter out = session.out();
+
+        if (!InputValidator.validateAccountNumber(accountNo)) {
+            out.println("Invalid account number format");
+            return;
+        }
+
+        if (!InputValidator.validatePassword(password)) {
+            out.println("Password does not meet requirements");
+            return;
+        }
+
+        try {
+            long balance = Money.parse(initialDeposit);
+
+            if (!InputValidator.validateAmount(balance)) {
+                out.println("Invalid amount");
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                byte[] salt = PasswordEncryptionService.generateSalt();
+                byte[] encryptedPassword = await(PasswordEncryptionService.getEncryptedPasswordAsync(password, salt));
 
-            if (rs.next()) {
-                System.out.printf("Current balance: $%.2f%n", rs.getDouble("balance"));
+                if (store().create(accountNo, encryptedPassword, salt, balance)) {
+                    out.println("Account created successfully");
+                } else {
+                    out.println("Account already exists");
+                }
+            } catch (RejectedExecutionException e) {
+                busyRejections.increment();
+                out.println(BUSY_MESSAGE);
+            } catch (Exception e) {
+                SecureExceptionHandler.handle(e, "Error creating account", out);
+            } finally {
+                createAccountLatency.recordSince(start);
             }
+        } catch (NumberFormatException e) {
+            out.println("Invalid amount format");
+        }
+    }
+
+    // First login step: checks the password and sends an MFA code. Returns true if a code is awaited.
+    public static boolean login(Session session, String accountNo, String password) {
+        PrintWriter out = session.out();
+        session.logout();
+
+        // Malformed numbers cannot exist; turned away before they take a slot in the limiter
+        if (!InputValidator.validateAccountNumber(accountNo)) {
+            loginFailures.increment();
+            out.println("Invalid account number format");
+            return false;
+        }
+
+        // Throttled before the lookup and the hash, so rejected attempts cost almost nothing
+        if (loginLimiter.tryAcquire(accountNo, session.getSource()) != LoginRateLimiter.Decision.ALLOWED) {
+            loginThrottled.increment();
+            out.println("Too many login attempts, please try again later");
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            // Credentials are fetched first so slow PBKDF2 work never holds a pool slot
+            AccountStore.Credentials credentials = store().findCredentials(accountNo);
+            long looked = System.nanoTime();
+            loginLookupLatency.record(looked - start);
+
+            if (credentials == null) {
+                loginFailures.increment();
+                out.println("Account not found");
+                return false;
+            }
+            boolean authenticated = await(PasswordEncryptionService.authenticateAsync(password,
+                    credentials.password(), credentials.salt()));
+            long hashed = System.nanoTime();
+            loginHashLatency.record(hashed - looked);
+
+            if (!authenticated) {
+                loginFailures.increment();
+                out.println("Invalid credentials");
+                return false;
+            }
+            // The throttle history is kept until MFA succeeds: clearing it here would let anyone
+            // with the password draw fresh challenges, and so fresh code guesses, without limit
+            try {
+                String mfaCode = MFAService.generateVerificationCode();
+                if (!challenges.issue(accountNo, mfaCode)) {
+                    busyRejections.increment();
+                    out.println(BUSY_MESSAGE);
+                } else if (MFAService.sendVerificationCode(accountNo, mfaCode)) {
+                    session.beginVerification(accountNo);
+                    return true;
+                } else {
+                    challenges.cancel(accountNo);
+                    busyRejections.increment();
+                    out.println(BUSY_MESSAGE);
+                }
+            } finally {
+                loginMfaLatency.recordSince(hashed);
+            }
+        } catch (RejectedExecutionException e) {
+            busyRejections.increment();
+            out.println(BUSY_MESSAGE);
         } catch (Exception e) {
-            SecureExceptionHandler.handle(e, "Error checking balance");
+            SecureExceptionHandler.handle(e, "Login error", out);
+        } finally {
+            loginLatency.recordSince(start);
         }
+        return false;
     }
 
-    private static void deposit() {
-        System.out.print("Enter deposit amount: ");
+    // Second login step: checks the MFA code sent by login().
+    public static boolean verifyLogin(Session session, String code) {
+        PrintWriter out = session.out();
+
+        if (!session.isAwaitingVerification()) {
+            out.println("No login in progress");
+            return false;
+        }
+
+        switch (challenges.verify(session.getPendingAccountNo(), code)) {
+            case ACCEPTED -> {
+                loginLimiter.onSuccess(session.getPendingAccountNo());
+                String token = sessionTokens.issue(session.getPendingAccountNo());
+                session.completeLogin(token);
+                out.println("Login successful!");
+                out.println("Session token: " + token);
+                return true;
+            }
+            case REJECTED -> out.println("Invalid verification code");
+            case EXPIRED -> {
+                session.logout();
+                out.println("Verification code expired, please log in again");
+            }
+            default -> {
+                session.logout();
+                out.println("Invalid verification code, please log in again");
+            }
+        }
+        return false;
+    }
+
+    // Signs back in with a token from an earlier login, on this or any server sharing the key.
+    // No password hash and no database lookup.
+    public static boolean resume(Session session, String token) {
+        long start = System.nanoTime();
         try {
-            double amount = Double.parseDouble(scanner.nextLine());
-            
+            long account = sessionTokens.verify(token);
+            if (account == AccountNumbers.INVALID) {
+                session.logout();
+                session.out().println("Invalid or expired session token, please log in again");
+                return false;
+            }
+            session.resume(AccountNumbers.unpack(account), token);
+            session.out().println("Session resumed");
+            return true;
+        } finally {
+            resumeLatency.recordSince(start);
+        }
+    }
+
+    public static void logout(Session session) {
+        if (session.getToken() != null) {
+            sessionTokens.revoke(session.getToken());
+        }
+        session.logout();
+        session.out().println("Logged out successfully");
+    }
+
+    public static void checkBalance(Session session) {
+        PrintWriter out = session.out();
+        if (!requireLogin(session)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            long balance = store().getBalance(session.getAccountNo());
+            if (balance != AccountStore.NO_ACCOUNT) {
+                out.printf("Current balance: $%s%n", Money.format(balance));
+            }
+        } catch (Exception e) {
+            SecureExceptionHandler.handle(e, "Error checking balance", out);
+        } finally {
+            checkBalanceLatency.recordSince(start);
+        }
+    }
+
+    // Most recent journal entries for the logged-in account, newest first
+    public static void printStatement(Session session) {
+        PrintWriter out = session.out();
+        if (!requireLogin(session)) {
+            return;
+        }
+
+        List<TransactionJournal.Entry> entries = journal().statement(session.getAccountNo(), STATEMENT_LENGTH);
+        if (entries.isEmpty()) {
+            out.println("No transactions");
+        }
+        for (TransactionJournal.Entry entry : entries) {
+            out.printf("%s %-12s %s%s balance $%s%n", Instant.ofEpochMilli(entry.timestamp()), entry.type(),
+                    entry.amount() < 0 ? "-$" : "+$", Money.format(Math.abs(entry.amount())),
+                    Money.format(entry.balanceAfter()));
+        }
+    }
+
+    public static void deposit(Session session, String amountText) {
+        changeBalance(session, amountText, true);
+    }
+
+    public static void withdraw(Session session, String amountText) {
+        changeBalance(session, amountText, false);
+    }
+
+    private static void changeBalance(Session session, String amountText, boolean isDeposit) {
+        PrintWriter out = session.out();
+        if (!requireLogin(session)) {
+            return;
+        }
+
+        try {
+            long amount = Money.parse(amountText);
+
             if (!InputValidator.validateAmount(amount)) {
-                System.out.println("Invalid amount");
+                out.println("Invalid amount");
                 return;
             }
 
-            updateBalance(amount, true);
+            updateBalance(session, amount, isDeposit);
         } catch (NumberFormatException e) {
-            System.out.println("Invalid amount format");
+            out.println("Invalid amount format");
         }
     }
 
-    private static void withdraw() {
-        System.out.print("Enter withdrawal amount: ");
+    // Moves money from the logged-in account to another one in a single transaction
+    public static void transfer(Session session, String toAccountNo, String amountText) {
+        PrintWriter out = session.out();
+        if (!requireLogin(session)) {
+            return;
+        }
+        if (!InputValidator.validateAccountNumber(toAccountNo) || toAccountNo.equals(session.getAccountNo())) {
+            out.println("Invalid destination account");
+            return;
+        }
+
+        long start = System.nanoTime();
         try {
-            double amount = Double.parseDouble(scanner.nextLine());
-            
+            long amount = Money.parse(amountText);
             if (!InputValidator.validateAmount(amount)) {
-                System.out.println("Invalid amount");
+                out.println("Invalid amount");
                 return;
             }
 
-            updateBalance(amount, false);
+            AccountStore.TransferResult result = store().transfer(session.getAccountNo(), toAccountNo, amount);
+            switch (result.status()) {
+                case SUCCESS -> out.printf("Transfer successful. New balance: $%s%n", Money.format(result.balance()));
+                case INSUFFICIENT_FUNDS -> {
+                    insufficientFunds.increment();
+                    out.println("Insufficient funds");
+                }
+                case ACCOUNT_NOT_FOUND -> out.println("Account not found");
+            }
         } catch (NumberFormatException e) {
-            System.out.println("Invalid amount format");
+            out.println("Invalid amount format");
+        } catch (Exception e) {
+            SecureExceptionHandler.handle(e, "Transfer error", out);
+        } finally {
+            transferLatency.recordSince(start);
         }
     }
 
-    private static void updateBalance(double amount, boolean isDeposit) {
-        try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD)) {
-            conn.setAutoCommit(false); // Start transaction
-            
-            try (PreparedStatement checkStmt = conn.prepareStatement(
-                     "SELECT balance FROM customers WHERE accountNo = ? FOR UPDATE");
-                 PreparedStatement updateStmt = conn.prepareStatement(
-                     "UPDATE customers SET balance = ? WHERE accountNo = ?")) {
-                
-                // Check current balance
-                checkStmt.setString(1, currentAccountNo);
-                ResultSet rs = checkStmt.executeQuery();
-                
-                if (rs.next()) {
-                    double currentBalance = rs.getDouble("balance");
-                    double newBalance;
-                    
-                    if (isDeposit) {
-                        newBalance = currentBalance + amount;
-                    } else {
-                        if (amount > currentBalance) {
-                            System.out.println("Insufficient funds");
-                            return;
-                        }
-                        newBalance = currentBalance - amount;
-                    }
-                    
-                    // Update balance
-                    updateStmt.setDouble(1, newBalance);
-                    updateStmt.setString(2, currentAccountNo);
-                    updateStmt.executeUpdate();
-                    
-                    conn.commit();
-                    System.out.printf("Transaction successful. New balance: $%.2f%n", newBalance);
+    // Waits for work handed to the hashing pool, rethrowing the task's own exception
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean requireLogin(Session session) {
+        if (!session.isLoggedIn()) {
+            session.out().println("Please log in first");
+            return false;
+        }
+        return true;
+    }
+
+    private static void updateBalance(Session session, long amount, boolean isDeposit) {
+        PrintWriter out = session.out();
+
+        long start = System.nanoTime();
+        try {
+            TransactionEngine.Result result = store().updateBalance(session.getAccountNo(), amount, isDeposit);
+
+            switch (result.status()) {
+                case SUCCESS -> out.printf("Transaction successful. New balance: $%s%n", Money.format(result.balance()));
+                case INSUFFICIENT_FUNDS -> {
+                    insufficientFunds.increment();
+                    out.println("Insufficient funds");
                 }
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
+                case ACCOUNT_NOT_FOUND -> out.println("Account not found");
             }
+        } catch (RejectedExecutionException e) {
+            busyRejections.increment();
+            out.println(BUSY_MESSAGE);
         } catch (Exception e) {
-            SecureExceptionHandler.handle(e, "Transaction error");
+            SecureExceptionHandler.handle(e, "Transaction error", out);
+        } finally {
+            updateBalanceLatency.recordSince(start);
         }
     }
 }
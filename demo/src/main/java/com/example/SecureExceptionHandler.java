@@ -1,13 +1,19 @@
 package com.example;
 
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.io.PrintWriter;
 
+// Tells the user something went wrong without leaking details, and hands the exception to the
+// asynchronous ErrorReporter so logging never runs on the caller's thread.
 public class SecureExceptionHandler {
-    private static final Logger logger = Logger.getLogger(SecureExceptionHandler.class.getName());
-
     public static void handle(Exception e, String userFriendlyMessage) {
-        logger.log(Level.SEVERE, "Error occurred", e);
+        Metrics.global().recordError(e);
+        ErrorReporter.global().report(e, userFriendlyMessage);
         System.out.println(userFriendlyMessage);
     }
+
+    public static void handle(Exception e, String userFriendlyMessage, PrintWriter out) {
+        Metrics.global().recordError(e);
+        ErrorReporter.global().report(e, userFriendlyMessage);
+        out.println(userFriendlyMessage);
+    }
 }
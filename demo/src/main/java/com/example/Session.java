@@ -0,0 +1,69 @@
+package com.example;
+
+import java.io.PrintWriter;
+
+// Per-customer conversation state; one instance per console or network connection.
+public class Session {
+    private final PrintWriter out;
+    private final String source;
+    private String accountNo;
+    private String pendingAccountNo;
+    private String token;
+
+    public Session(PrintWriter out, String source) {
+        this.out = out;
+        this.source = source;
+    }
+
+    public PrintWriter out() {
+        return out;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getAccountNo() {
+        return accountNo;
+    }
+
+    public boolean isLoggedIn() {
+        return accountNo != null;
+    }
+
+    public boolean isAwaitingVerification() {
+        return pendingAccountNo != null;
+    }
+
+    // The signed session token issued at login or presented to resume, if any
+    String getToken() {
+        return token;
+    }
+
+    String getPendingAccountNo() {
+        return pendingAccountNo;
+    }
+
+    void beginVerification(String accountNo) {
+        this.accountNo = null;
+        this.pendingAccountNo = accountNo;
+    }
+
+    void completeLogin(String token) {
+        this.accountNo = pendingAccountNo;
+        this.pendingAccountNo = null;
+        this.token = token;
+    }
+
+    void resume(String accountNo, String token) {
+        this.accountNo = accountNo;
+        this.pendingAccountNo = null;
+        this.token = token;
+    }
+
+    void logout() {
+        this.accountNo = null;
+        this.pendingAccountNo = null;
+        this.token = null;
+    }
+}
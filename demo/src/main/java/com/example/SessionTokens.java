@@ -0,0 +1,291 @@
+package com.example;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Signed, self-contained session tokens issued after a completed login (password and MFA).
+// A token names the account and an expiry and carries a truncated HMAC-SHA256 over both, so
+// any process holding the key can re-identify the caller without a password hash or a query:
+//
+//   version(1) keyId(1) account(8, AccountNumbers.pack) expiresAt(8, epoch ms) tokenId(8) mac(16)
+//
+// 42 bytes, sent as 56 base64url characters. verify() decodes into a per-thread buffer and
+// computes the HMAC over a cached MessageDigest as Pbkdf2Engine does, so the accepted path
+// allocates nothing while no token is revoked.
+//
+// Keys rotate: rotate() signs new tokens with a fresh key and keeps the old one for
+// verification until every token it signed has expired. Logged-out tokens go in a concurrent
+// map of token id to expiry, pruned of expired ids on rotate() and whenever it doubles in size.
+// Revocation is per node: it is held in memory only, so other servers sharing the key still
+// accept a logged-out token until it expires, and a restart forgets it.
+public class SessionTokens {
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+    private static final int VERSION = 1;
+    private static final int KEY_LENGTH = 32;
+    private static final int PAYLOAD_LENGTH = 26;
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = PAYLOAD_LENGTH + MAC_LENGTH;
+    private static final int ENCODED_LENGTH = TOKEN_LENGTH / 3 * 4;
+    private static final int MAX_KEYS = 256;
+    private static final int MIN_PRUNE_SIZE = 1_024;
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final int BLOCK_SIZE = 64;
+    private static final byte IPAD = 0x36;
+    private static final byte OPAD = 0x5c;
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private static final ThreadLocal<Hmac> hmacs = ThreadLocal.withInitial(Hmac::create);
+
+    // HMAC pads derived from the key; retireAt is 0 while the key still signs new tokens
+    private record SigningKey(int id, byte[] innerPad, byte[] outerPad, long retireAt) {}
+
+    private final long ttlMillis;
+    private final AtomicReferenceArray<SigningKey> keys = new AtomicReferenceArray<>(MAX_KEYS);
+    private volatile SigningKey current;
+    private final ConcurrentHashMap<Long, Long> revoked = new ConcurrentHashMap<>();
+    private final AtomicInteger pruneAt = new AtomicInteger(MIN_PRUNE_SIZE);
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder revocationHits = new LongAdder();
+
+    // Signs with a random key of its own; only this process can verify its tokens
+    public SessionTokens(Duration ttl) {
+        this(ttl, randomKey());
+    }
+
+    // Every process started with the same secret accepts the others' tokens
+    public SessionTokens(Duration ttl, byte[] secret) {
+        this.ttlMillis = ttl.toMillis();
+        install(new SigningKey(0, pad(secret, IPAD), pad(secret, OPAD), 0));
+    }
+
+    public String issue(String accountNo) {
+        return issue(accountNo, System.currentTimeMillis());
+    }
+
+    String issue(String accountNo, long nowMillis) {
+        long account = AccountNumbers.pack(accountNo);
+        if (account == AccountNumbers.INVALID) {
+            throw new IllegalArgumentException("Invalid account number");
+        }
+        SigningKey key = current;
+        ByteBuffer token = ByteBuffer.allocate(TOKEN_LENGTH);
+        token.put((byte) VERSION).put((byte) key.id()).putLong(account).putLong(nowMillis + ttlMillis)
+                .putLong(SaltProvider.current().nextLong());
+        hmacs.get().sign(key, token.array());
+        issued.increment();
+        return encoder.encodeToString(token.array());
+    }
+
+    public long verify(CharSequence token) {
+        return verify(token, System.currentTimeMillis());
+    }
+
+    // The packed account number the token was issued for, or AccountNumbers.INVALID if it is
+    // malformed, forged, expired, signed by a retired key or revoked
+    long verify(CharSequence token, long nowMillis) {
+        Hmac hmac = hmacs.get();
+        byte[] bytes = hmac.token;
+        if (!decode(token, bytes) || bytes[0] != VERSION) {
+            rejected.increment();
+            return AccountNumbers.INVALID;
+        }
+        SigningKey key = keys.get(bytes[1] & 0xff);
+        long expiresAt = readLong(bytes, 10);
+        if (key == null || expiresAt <= nowMillis || (key.retireAt() != 0 && key.retireAt() <= nowMillis)
+                || !hmac.matches(key, bytes)) {
+            rejected.increment();
+            return AccountNumbers.INVALID;
+        }
+        if (!revoked.isEmpty() && revoked.containsKey(readLong(bytes, 18))) {
+            revocationHits.increment();
+            rejected.increment();
+            return AccountNumbers.INVALID;
+        }
+        accepted.increment();
+        return readLong(bytes, 2);
+    }
+
+    // Rejects the token from now until it would have expired anyway. Tokens that do not
+    // verify are ignored, so the list only ever holds ids this service issued.
+    public void revoke(CharSequence token) {
+        revoke(token, System.currentTimeMillis());
+    }
+
+    void revoke(CharSequence token, long nowMillis) {
+        if (verify(token, nowMillis) == AccountNumbers.INVALID) {
+            return;
+        }
+        byte[] bytes = hmacs.get().token;
+        revoked.putIfAbsent(readLong(bytes, 18), readLong(bytes, 10));
+        // One caller prunes once the map has doubled since the last prune, so a burst of
+        // logouts costs amortized constant time each
+        int limit = pruneAt.get();
+        if (revoked.size() >= limit && pruneAt.compareAndSet(limit, Integer.MAX_VALUE)) {
+            prune(nowMillis);
+        }
+    }
+
+    private void prune(long nowMillis) {
+        revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        pruneAt.set(Math.max(MIN_PRUNE_SIZE, revoked.size() * 2));
+    }
+
+    // New tokens are signed with a fresh key; tokens signed by the previous one stay valid
+    // until they expire. Only for a key of this process's own: other processes sharing the
+    // secret would not know the new key.
+    public void rotate() {
+        rotate(System.currentTimeMillis());
+    }
+
+    synchronized void rotate(long nowMillis) {
+        SigningKey old = current;
+        keys.set(old.id(), new SigningKey(old.id(), old.innerPad(), old.outerPad(), nowMillis + ttlMillis));
+        for (int i = 0; i < MAX_KEYS; i++) {
+            SigningKey key = keys.get(i);
+            if (key != null && key.retireAt() != 0 && key.retireAt() <= nowMillis) {
+                keys.set(i, null);
+            }
+        }
+        byte[] secret = randomKey();
+        install(new SigningKey((old.id() + 1) % MAX_KEYS, pad(secret, IPAD), pad(secret, OPAD), 0));
+        prune(nowMillis);
+    }
+
+    private void install(SigningKey key) {
+        keys.set(key.id(), key);
+        current = key;
+    }
+
+    public int getCurrentKeyId() {
+        return current.id();
+    }
+
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("issued=%d accepted=%d rejected=%d revoked=%d revocationHits=%d key=%d", issued.sum(),
+                accepted.sum(), rejected.sum(), getRevokedCount(), revocationHits.sum(), current.id());
+    }
+
+    private static byte[] randomKey() {
+        byte[] secret = new byte[KEY_LENGTH];
+        SaltProvider.current().nextBytes(secret);
+        return secret;
+    }
+
+    // Key XOR pad, the first block of the inner or outer hash (RFC 2104)
+    private static byte[] pad(byte[] secret, byte value) {
+        if (secret.length < KEY_LENGTH || secret.length > BLOCK_SIZE) {
+            throw new IllegalArgumentException("Session key must be " + KEY_LENGTH + " to " + BLOCK_SIZE + " bytes");
+        }
+        byte[] pad = new byte[BLOCK_SIZE];
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            pad[i] = (byte) ((i < secret.length ? secret[i] : 0) ^ value);
+        }
+        return pad;
+    }
+
+    private static boolean decode(CharSequence token, byte[] out) {
+        if (token == null || token.length() != ENCODED_LENGTH) {
+            return false;
+        }
+        for (int i = 0, o = 0; i < ENCODED_LENGTH; i += 4, o += 3) {
+            int bits = 0;
+            for (int j = 0; j < 4; j++) {
+                char c = token.charAt(i + j);
+                int value = c < DECODE.length ? DECODE[c] : -1;
+                if (value < 0) {
+                    return false;
+                }
+                bits = bits << 6 | value;
+            }
+            out[o] = (byte) (bits >>> 16);
+            out[o + 1] = (byte) (bits >>> 8);
+            out[o + 2] = (byte) bits;
+        }
+        return true;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    // Per-thread digest and scratch buffers
+    private static final class Hmac {
+        private final MessageDigest digest;
+        private final byte[] token = new byte[TOKEN_LENGTH];
+        private final byte[] inner;
+        private final byte[] mac;
+
+        private Hmac(MessageDigest digest) {
+            this.digest = digest;
+            this.inner = new byte[digest.getDigestLength()];
+            this.mac = new byte[digest.getDigestLength()];
+        }
+
+        static Hmac create() {
+            try {
+                return new Hmac(MessageDigest.getInstance(DIGEST_ALGORITHM));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", e);
+            }
+        }
+
+        void sign(SigningKey key, byte[] bytes) {
+            compute(key, bytes);
+            System.arraycopy(mac, 0, bytes, PAYLOAD_LENGTH, MAC_LENGTH);
+        }
+
+        // Constant-time comparison of the truncated MAC
+        boolean matches(SigningKey key, byte[] bytes) {
+            compute(key, bytes);
+            int diff = 0;
+            for (int i = 0; i < MAC_LENGTH; i++) {
+                diff |= mac[i] ^ bytes[PAYLOAD_LENGTH + i];
+            }
+            return diff == 0;
+        }
+
+        private void compute(SigningKey key, byte[] bytes) {
+            try {
+                digest.update(key.innerPad());
+                digest.update(bytes, 0, PAYLOAD_LENGTH);
+                digest.digest(inner, 0, inner.length);
+                digest.update(key.outerPad());
+                digest.update(inner);
+                digest.digest(mac, 0, mac.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Could not compute " + DIGEST_ALGORITHM, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.example;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Spreads accounts over several backing stores (typically one JdbcAccountStore, with its own
+// connection pool, per MySQL primary). Accounts are placed by consistent hashing of the packed
+// account number on a ring with virtualNodes points per shard, so adding a shard moves only
+// about 1/N of the accounts and leaves the rest where they are.
+//
+// addShard() rebalances online. While it runs, an account whose owner changed is moved the first
+// time anything touches it, and addShard() itself walks the old shards to move the rest. Every operation holds a
+// per-account lock stripe (read mode, or write mode when it has to move the account first), so
+// an account is never used while it is half way between two shards.
+//
+// Transfers whose accounts all live on one shard use that shard's atomic transfer. Otherwise
+// each leg is a withdrawal and a deposit on the two shards, undone in reverse order if a later
+// step fails. A cross-shard transfer holds its accounts' stripes in write mode, so other
+// requests through this store neither see a half-applied transfer nor spend money that an undo
+// has to take back. It is not crash-atomic.
+public final class ShardedAccountStore implements AccountStore {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    private static final int LOCK_STRIPES = 1024;
+    private static final long RING_SEED = 0x5851f42d4c957f2dL;
+
+    private static final Logger logger = Logger.getLogger(ShardedAccountStore.class.getName());
+
+    @FunctionalInterface
+    private interface ShardCall<T> {
+        T call(AccountStore shard) throws SQLException;
+    }
+
+    // previous is set while accounts are moving from the owners it assigns to the ring's
+    private record Routing(List<AccountStore> shards, Ring ring, Ring previous) {
+        AccountStore ownerOf(long key) {
+            return shards.get(ring.ownerOf(key));
+        }
+
+        boolean isMoving(long key) {
+            return previous != null && previous.ownerOf(key) != ring.ownerOf(key);
+        }
+    }
+
+    // Each shard's points depend only on its index, so growing the ring keeps existing arcs
+    private static final class Ring {
+        private final long[] points;
+        private final int[] owners;
+
+        Ring(int shards, int virtualNodes) {
+            long[][] entries = new long[shards * virtualNodes][];
+            for (int shard = 0; shard < shards; shard++) {
+                for (int node = 0; node < virtualNodes; node++) {
+                    entries[shard * virtualNodes + node] = new long[] {
+                            AccountNumbers.mix(((long) shard << 32 | node) ^ RING_SEED), shard };
+                }
+            }
+            Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+            points = new long[entries.length];
+            owners = new int[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                points[i] = entries[i][0];
+                owners[i] = (int) entries[i][1];
+            }
+        }
+
+        // The first point at or after the key's position, wrapping around
+        int ownerOf(long key) {
+            int i = Arrays.binarySearch(points, AccountNumbers.mix(key ^ RING_SEED));
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return owners[i == points.length ? 0 : i];
+        }
+    }
+
+    private final int virtualNodes;
+    private final StampedLock[] locks = new StampedLock[LOCK_STRIPES];
+    private final Object rebalancing = new Object();
+    private volatile Routing routing;
+
+    private final LongAdder moved = new LongAdder();
+    private final LongAdder crossShardTransfers = new LongAdder();
+
+    public ShardedAccountStore(List<? extends AccountStore> shards) {
+        this(shards, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ShardedAccountStore(List<? extends AccountStore> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("No shards");
+        }
+        this.virtualNodes = virtualNodes;
+        this.routing = new Routing(List.copyOf(shards), new Ring(shards.size(), virtualNodes), null);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    @Override
+    public boolean create(String accountNo, byte[] password, byte[] salt, long openingBalance) throws SQLException {
+        return route(accountNo, shard -> shard.create(accountNo, password, salt, openingBalance));
+    }
+
+    @Override
+    public Credentials findCredentials(String accountNo) throws SQLException {
+        return route(accountNo, shard -> shard.findCredentials(accountNo));
+    }
+
+    @Override
+    public long getBalance(String accountNo) throws SQLException {
+        return route(accountNo, shard -> shard.getBalance(accountNo));
+    }
+
+    @Override
+    public TransactionEngine.Result updateBalance(String accountNo, long amount, boolean isDeposit)
+            throws SQLException {
+        return route(accountNo, shard -> shard.updateBalance(accountNo, amount, isDeposit));
+    }
+
+    @Override
+    public boolean remove(String accountNo) throws SQLException {
+        return route(accountNo, shard -> shard.remove(accountNo));
+    }
+
+    @Override
+    public void forEachAccount(Consumer<String> action) throws SQLException {
+        for (AccountStore shard : routing.shards()) {
+            shard.forEachAccount(action);
+        }
+    }
+
+    private <T> T route(String accountNo, ShardCall<T> call) throws SQLException {
+        long key = AccountNumbers.pack(accountNo);
+        if (key == AccountNumbers.INVALID) {
+            return call.call(routing.shards().get(0)); // the shard reports it as missing
+        }
+        StampedLock lock = lockFor(key);
+        long stamp = lock.readLock();
+        try {
+            Routing current = routing;
+            if (current.isMoving(key)) {
+                long writeStamp = lock.tryConvertToWriteLock(stamp);
+                if (writeStamp == 0) {
+                    lock.unlockRead(stamp);
+                    writeStamp = lock.writeLock();
+                }
+                stamp = writeStamp;
+                current = routing;
+                if (current.isMoving(key)) {
+                    move(accountNo, current.shards().get(current.previous().ownerOf(key)), current.ownerOf(key));
+                }
+            }
+            return call.call(current.ownerOf(key));
+        } finally {
+            lock.unlock(stamp);
+        }
+    }
+
+    @Override
+    public TransferResult transfer(List<Transfer> legs) throws SQLException {
+        List<String> accounts = TransferEngine.lockOrder(legs);
+        long[] keys = new long[accounts.size()];
+        boolean[] stripes = new boolean[LOCK_STRIPES];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = AccountNumbers.pack(accounts.get(i));
+            if (keys[i] != AccountNumbers.INVALID) {
+                stripes[stripeOf(keys[i])] = true;
+            }
+        }
+
+        long[] stamps = new long[LOCK_STRIPES];
+        lockAll(stripes, stamps, false);
+        try {
+            Routing current = routing;
+            AccountStore single = anyMoving(current, keys) ? null : singleOwner(current, keys);
+            if (single != null) {
+                return single.transfer(legs); // the shard's own transaction isolates it
+            }
+
+            // Moving an account or applying legs one shard at a time needs the stripes to ourselves
+            unlockAll(stripes, stamps);
+            lockAll(stripes, stamps, true);
+            current = routing;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != AccountNumbers.INVALID && current.isMoving(keys[i])) {
+                    move(accounts.get(i), current.shards().get(current.previous().ownerOf(keys[i])),
+                            current.ownerOf(keys[i]));
+                }
+            }
+            single = singleOwner(current, keys);
+            if (single != null) {
+                return single.transfer(legs);
+            }
+            crossShardTransfers.increment();
+            return transferAcrossShards(current, legs);
+        } finally {
+            unlockAll(stripes, stamps);
+        }
+    }
+
+    // The shard holding every account, or null if they are spread over several
+    private static AccountStore singleOwner(Routing routing, long[] keys) {
+        AccountStore single = null;
+        for (long key : keys) {
+            AccountStore owner = key == AccountNumbers.INVALID ? routing.shards().get(0) : routing.ownerOf(key);
+            if (single != null && single != owner) {
+                return null;
+            }
+            single = owner;
+        }
+        return single;
+    }
+
+    private record Step(AccountStore shard, String accountNo, long amount, boolean isDeposit) {}
+
+    private static AccountStore shardOf(Routing routing, String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        return key == AccountNumbers.INVALID ? routing.shards().get(0) : routing.ownerOf(key);
+    }
+
+    // Runs with the stripes of every account in the batch write-locked, so no other request
+    // through this store can see or change them between steps
+    private TransferResult transferAcrossShards(Routing routing, List<Transfer> legs) throws SQLException {
+        // Checked up front so a missing account fails before any money moves
+        for (int i = 0; i < legs.size(); i++) {
+            Transfer leg = legs.get(i);
+            if (shardOf(routing, leg.fromAccountNo()).getBalance(leg.fromAccountNo()) == NO_ACCOUNT
+                    || shardOf(routing, leg.toAccountNo()).getBalance(leg.toAccountNo()) == NO_ACCOUNT) {
+                return new TransferResult(TransactionEngine.Status.ACCOUNT_NOT_FOUND, i, 0);
+            }
+        }
+
+        List<Step> applied = new ArrayList<>();
+        try {
+            for (int i = 0; i < legs.size(); i++) {
+                Transfer leg = legs.get(i);
+                AccountStore from = shardOf(routing, leg.fromAccountNo());
+                TransactionEngine.Result debit = from.updateBalance(leg.fromAccountNo(), leg.amount(), false);
+                if (debit.status() != TransactionEngine.Status.SUCCESS) {
+                    undo(applied);
+                    return new TransferResult(debit.status(), i, debit.balance());
+                }
+                applied.add(new Step(from, leg.fromAccountNo(), leg.amount(), false));
+
+                AccountStore to = shardOf(routing, leg.toAccountNo());
+                TransactionEngine.Result credit = to.updateBalance(leg.toAccountNo(), leg.amount(), true);
+                if (credit.status() != TransactionEngine.Status.SUCCESS) {
+                    undo(applied);
+                    return new TransferResult(credit.status(), i, 0);
+                }
+                applied.add(new Step(to, leg.toAccountNo(), leg.amount(), true));
+            }
+        } catch (SQLException | RuntimeException e) {
+            undo(applied);
+            throw e;
+        }
+        String first = legs.get(0).fromAccountNo();
+        return new TransferResult(TransactionEngine.Status.SUCCESS, -1, shardOf(routing, first).getBalance(first));
+    }
+
+    // Best effort, newest first: the steps already committed on their shards
+    private static void undo(List<Step> applied) {
+        for (int i = applied.size() - 1; i >= 0; i--) {
+            Step step = applied.get(i);
+            try {
+                TransactionEngine.Result result = step.shard().updateBalance(step.accountNo(), step.amount(),
+                        !step.isDeposit());
+                if (result.status() != TransactionEngine.Status.SUCCESS) {
+                    logger.severe("Could not undo cross-shard transfer step for " + step.accountNo() + ": "
+                            + result.status());
+                }
+            } catch (SQLException | RuntimeException e) {
+                logger.log(Level.SEVERE, "Could not undo cross-shard transfer step for " + step.accountNo(), e);
+            }
+        }
+    }
+
+    // Adds a shard and moves the accounts the new ring assigns to it, while the store stays in
+    // use. Returns when every account is on its new owner. One rebalance runs at a time.
+    public void addShard(AccountStore shard) throws SQLException {
+        synchronized (rebalancing) {
+            Routing before = routing;
+            List<AccountStore> shards = new ArrayList<>(before.shards());
+            shards.add(shard);
+            Routing moving = new Routing(List.copyOf(shards), new Ring(shards.size(), virtualNodes), before.ring());
+            routing = moving;
+
+            long start = System.nanoTime();
+            long movedBefore = moved.sum();
+            for (int i = 0; i < before.shards().size(); i++) {
+                AccountStore source = before.shards().get(i);
+                for (long key : misplacedKeys(source, i, moving.ring())) {
+                    moveLocked(key, source, moving.ownerOf(key));
+                }
+            }
+            routing = new Routing(moving.shards(), moving.ring(), null);
+            logger.info(String.format("Added shard %d: moved %d accounts in %d ms", shards.size() - 1,
+                    moved.sum() - movedBefore, (System.nanoTime() - start) / 1_000_000));
+        }
+    }
+
+    // Moves every account that is not on the shard the ring assigns it to, for example after a
+    // restart with a new shard list that interrupted an addShard(). Run it before serving requests:
+    // until it finishes, misplaced accounts look missing.
+    public void rebalance() throws SQLException {
+        synchronized (rebalancing) {
+            Routing current = routing;
+            for (int i = 0; i < current.shards().size(); i++) {
+                AccountStore source = current.shards().get(i);
+                for (long key : misplacedKeys(source, i, current.ring())) {
+                    moveLocked(key, source, current.ownerOf(key));
+                }
+            }
+        }
+    }
+
+    // Packed keys rather than strings keep the list small; collected before moving so the
+    // source's scan is not interleaved with deletes from it
+    private static long[] misplacedKeys(AccountStore source, int index, Ring ring) throws SQLException {
+        long[][] keys = { new long[1024] };
+        int[] count = { 0 };
+        source.forEachAccount(accountNo -> {
+            long key = AccountNumbers.pack(accountNo);
+            if (key != AccountNumbers.INVALID && ring.ownerOf(key) != index) {
+                if (count[0] == keys[0].length) {
+                    keys[0] = Arrays.copyOf(keys[0], count[0] * 2);
+                }
+                keys[0][count[0]++] = key;
+            }
+        });
+        return Arrays.copyOf(keys[0], count[0]);
+    }
+
+    private void moveLocked(long key, AccountStore from, AccountStore to) throws SQLException {
+        StampedLock lock = lockFor(key);
+        long stamp = lock.writeLock();
+        try {
+            move(AccountNumbers.unpack(key), from, to); // a no-op if a request already moved it
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Caller holds the account's lock stripe in write mode. The copy is created before the
+    // original is removed, so a crash in between leaves two copies rather than none; the next
+    // move of that account then brings the new copy's balance in line with the original.
+    private void move(String accountNo, AccountStore from, AccountStore to) throws SQLException {
+        Credentials credentials = from.findCredentials(accountNo);
+        long balance = from.getBalance(accountNo);
+        if (credentials == null || balance == NO_ACCOUNT) {
+            return;
+        }
+        if (!to.create(accountNo, credentials.password(), credentials.salt(), balance)) {
+            long existing = to.getBalance(accountNo);
+            if (existing != balance) {
+                to.updateBalance(accountNo, Math.abs(balance - existing), balance > existing);
+            }
+        }
+        from.remove(accountNo);
+        moved.increment();
+    }
+
+    private StampedLock lockFor(long key) {
+        return locks[stripeOf(key)];
+    }
+
+    private static int stripeOf(long key) {
+        return (int) (AccountNumbers.mix(key) >>> 54) & (LOCK_STRIPES - 1);
+    }
+
+    private static boolean anyMoving(Routing routing, long[] keys) {
+        for (long key : keys) {
+            if (key != AccountNumbers.INVALID && routing.isMoving(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Ascending stripe order, the same in every caller, so multi-account lockers cannot deadlock
+    private void lockAll(boolean[] stripes, long[] stamps, boolean write) {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            if (stripes[i]) {
+                stamps[i] = write ? locks[i].writeLock() : locks[i].readLock();
+            }
+        }
+    }
+
+    private void unlockAll(boolean[] stripes, long[] stamps) {
+        for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+            if (stripes[i] && stamps[i] != 0) {
+                locks[i].unlock(stamps[i]);
+                stamps[i] = 0;
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return routing.shards().size();
+    }
+
+    // The shard index an account is assigned to, for diagnostics and load tests
+    public int shardOf(String accountNo) {
+        long key = AccountNumbers.pack(accountNo);
+        return key == AccountNumbers.INVALID ? 0 : routing.ring().ownerOf(key);
+    }
+
+    public List<AccountStore> getShards() {
+        return routing.shards();
+    }
+
+    @Override
+    public String toString() {
+        Routing current = routing;
+        StringBuilder text = new StringBuilder(String.format("sharded shards=%d rebalancing=%b moved=%d "
+                + "crossShardTransfers=%d", current.shards().size(), current.previous() != null, moved.sum(),
+                crossShardTransfers.sum()));
+        for (int i = 0; i < current.shards().size(); i++) {
+            text.append(" shard").append(i).append("[").append(current.shards().get(i)).append(']');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void close() {
+        for (AccountStore shard : routing.shards()) {
+            shard.close();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local stand-in for a real provider: prints codes to the console (or stays quiet) and can
+// simulate network latency and transient failures. Only with recordCodes, which load tests
+// set, does it keep the codes it sends, so a client can read its own; each is handed out once
+// and dropped when its challenge would have expired. Otherwise no code outlives send().
+public class StubMfaGateway implements MfaGateway {
+    private static final long CODE_VALIDITY_NANOS = TimeUnit.MINUTES.toNanos(MFAService.CODE_VALIDITY_MINUTES);
+    private static final int MIN_PRUNE_SIZE = 1_024;
+
+    private record SentCode(String code, long expiresAt) {}
+
+    private final boolean print;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final boolean recordCodes;
+    private final Map<String, SentCode> codes = new ConcurrentHashMap<>();
+    private final AtomicInteger pruneAt = new AtomicInteger(MIN_PRUNE_SIZE);
+    private final LongAdder sent = new LongAdder();
+
+    public StubMfaGateway() {
+        this(true, 0, 0, false);
+    }
+
+    public StubMfaGateway(boolean print, long latencyMillis, double failureRate, boolean recordCodes) {
+        this.print = print;
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.recordCodes = recordCodes;
+    }
+
+    @Override
+    public void send(Channel channel, List<Delivery> batch) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while sending", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new IOException("Simulated " + channel + " gateway failure");
+        }
+        for (Delivery delivery : batch) {
+            if (print) {
+                System.out.println("MFA code for " + delivery.accountNo() + ": " + delivery.code());
+                System.out.println("This code is valid for " + MFAService.CODE_VALIDITY_MINUTES + " minutes");
+            }
+            if (recordCodes) {
+                codes.put(delivery.accountNo(), new SentCode(delivery.code(), System.nanoTime() + CODE_VALIDITY_NANOS));
+            }
+            sent.increment();
+        }
+        if (recordCodes) {
+            pruneIfGrown();
+        }
+    }
+
+    // The unexpired code most recently sent to the account, removed so it is handed out once;
+    // null if there is none or codes are not recorded
+    public String takeCodeFor(String accountNo) {
+        SentCode code = codes.remove(accountNo);
+        return code == null || code.expiresAt() - System.nanoTime() <= 0 ? null : code.code();
+    }
+
+    // Codes nobody takes are dropped once they expire; pruning when the map has doubled keeps
+    // the cost per send constant
+    private void pruneIfGrown() {
+        int limit = pruneAt.get();
+        if (codes.size() >= limit && pruneAt.compareAndSet(limit, Integer.MAX_VALUE)) {
+            long now = System.nanoTime();
+            codes.values().removeIf(code -> code.expiresAt() - now <= 0);
+            pruneAt.set(Math.max(MIN_PRUNE_SIZE, codes.size() * 2));
+        }
+    }
+
+    public long getSentCount() {
+        return sent.sum();
+    }
+}
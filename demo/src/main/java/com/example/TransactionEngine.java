@@ -0,0 +1,136 @@
+package com.example;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Applies deposits and withdrawals as a single conditional UPDATE so the database does the
+// arithmetic and the funds check; the row lock is never held while Java code runs. Successful
+// updates are journaled and written through to the balance cache before the commit releases
+// the row lock, so both see changes to an account in commit order.
+public class TransactionEngine {
+    private static final String DEPOSIT_SQL =
+            "UPDATE customers SET balance = balance + " + Money.BIND_PARAM + " WHERE accountNo = ?";
+    private static final String WITHDRAW_SQL =
+            "UPDATE customers SET balance = balance - " + Money.BIND_PARAM
+            + " WHERE accountNo = ? AND balance >= " + Money.BIND_PARAM;
+    private static final String BALANCE_SQL =
+            "SELECT " + Money.select("balance") + " FROM customers WHERE accountNo = ?";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final Logger logger = Logger.getLogger(TransactionEngine.class.getName());
+
+    public enum Status { SUCCESS, INSUFFICIENT_FUNDS, ACCOUNT_NOT_FOUND }
+
+    public record Result(Status status, long balance) {}
+
+    private final ConnectionPool pool;
+    private final BalanceCache cache;
+    private final TransactionJournal journal;
+
+    public TransactionEngine(ConnectionPool pool, BalanceCache cache, TransactionJournal journal) {
+        this.pool = pool;
+        this.cache = cache;
+        this.journal = journal;
+    }
+
+    public Result deposit(String accountNo, long amount) throws SQLException {
+        return apply(accountNo, amount, true);
+    }
+
+    public Result withdraw(String accountNo, long amount) throws SQLException {
+        return apply(accountNo, amount, false);
+    }
+
+    public Result apply(String accountNo, long amount, boolean isDeposit) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = pool.getConnection()) {
+                conn.setAutoCommit(false); // Start transaction
+                long delta = isDeposit ? amount : -amount;
+                Result journaled = null;
+                try {
+                    Result result = apply(conn, accountNo, amount, isDeposit);
+                    if (result.status() == Status.SUCCESS) {
+                        journal(journal, accountNo, delta, result.balance());
+                        journaled = result;
+                        journal.sync();
+                        cache.put(accountNo, result.balance());
+                    }
+                    conn.commit();
+                    return result;
+                } catch (SQLException | IOException e) {
+                    cache.invalidate(accountNo);
+                    conn.rollback();
+                    if (journaled != null) {
+                        reverse(journal, accountNo, delta, journaled.balance() - delta);
+                    }
+                    throw e instanceof SQLException sqlException ? sqlException
+                            : new SQLException("Transaction journal write failed", e);
+                }
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Runs inside the caller's transaction; the row stays locked by the UPDATE until it commits
+    static Result apply(Connection conn, String accountNo, long amount, boolean isDeposit)
+            throws SQLException {
+        int updated;
+        try (PreparedStatement stmt = conn.prepareStatement(isDeposit ? DEPOSIT_SQL : WITHDRAW_SQL)) {
+            Money.bind(stmt, 1, amount);
+            stmt.setString(2, accountNo);
+            if (!isDeposit) {
+                Money.bind(stmt, 3, amount);
+            }
+            updated = stmt.executeUpdate();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(BALANCE_SQL)) {
+            stmt.setString(1, accountNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return new Result(Status.ACCOUNT_NOT_FOUND, 0);
+                }
+                long balance = Money.read(rs, 1);
+                return new Result(updated > 0 ? Status.SUCCESS : Status.INSUFFICIENT_FUNDS, balance);
+            }
+        }
+    }
+
+    static void journal(TransactionJournal journal, String accountNo, long delta, long balanceAfter)
+            throws IOException {
+        journal.append(accountNo, delta, balanceAfter,
+                delta >= 0 ? TransactionJournal.EntryType.DEPOSIT : TransactionJournal.EntryType.WITHDRAWAL);
+    }
+
+    // Compensates a journaled change whose transaction rolled back. Best effort: the rollback
+    // has already happened, so a failure here is logged rather than thrown.
+    static void reverse(TransactionJournal journal, String accountNo, long delta, long balanceAfter) {
+        try {
+            journal.append(accountNo, -delta, balanceAfter, TransactionJournal.EntryType.REVERSAL);
+            journal.sync();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Could not journal reversal for " + accountNo, e);
+        }
+    }
+
+    public BalanceCache getCache() {
+        return cache;
+    }
+
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    // Deadlocks and serialization failures (SQLSTATE 40001) and lock wait timeouts are safe to retry
+    static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState()) || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+}
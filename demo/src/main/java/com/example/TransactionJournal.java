@@ -0,0 +1,312 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Append-only ledger of every balance change. Records are fixed-width and written into
+// memory-mapped segment files of RECORDS_PER_SEGMENT records each, so record n lives at a
+// computable offset. Each record points back to the previous record for the same account;
+// statements follow that chain instead of scanning the journal.
+//
+// Record layout (64 bytes, big-endian):
+//   0 seq | 8 timestamp millis | 16 packed account | 24 amount (cents, signed)
+//   32 balance after | 40 previous seq for account | 48 type | 60 CRC32C of bytes 0-59
+//
+// One process writes the journal at a time. The constructor takes an exclusive lock on
+// LOCK_FILE and fails if another process (or another journal in this one) holds it; a
+// second writer would reuse sequence numbers and break the account chains.
+public class TransactionJournal implements AutoCloseable {
+    public static final int RECORD_SIZE = 64;
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 1 << 20; // 64 MiB segments
+    private static final int CHECKSUMMED_BYTES = 60;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String LOCK_FILE = "journal.lock";
+
+    public enum EntryType { OPENING, DEPOSIT, WITHDRAWAL, REVERSAL, TRANSFER_OUT, TRANSFER_IN, INTEREST, FEE }
+
+    public record Entry(long seq, long timestamp, String accountNo, long amount, long balanceAfter,
+                        EntryType type) {}
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(long seq, long timestamp, long accountKey, long amount, long balanceAfter, EntryType type);
+    }
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final FileChannel lockChannel;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private final Map<Long, Long> lastSeqByAccount = new ConcurrentHashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private volatile long lastSeq;
+    private volatile long syncedSeq;
+
+    public TransactionJournal(Path directory) {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    public TransactionJournal(Path directory, int recordsPerSegment) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        try {
+            Files.createDirectories(directory);
+            lockChannel = lock(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open transaction journal", e);
+        }
+        try {
+            openSegments();
+            recover();
+        } catch (IOException e) {
+            closeQuietly(lockChannel);
+            throw new UncheckedIOException("Cannot open transaction journal", e);
+        } catch (RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+    }
+
+    // Appends one record and returns its sequence number. Not durable until sync() returns.
+    public long append(String accountNo, long amount, long balanceAfter, EntryType type) throws IOException {
+        long accountKey = AccountNumbers.pack(accountNo);
+        if (accountKey == AccountNumbers.INVALID) {
+            throw new IllegalArgumentException("Account number cannot be journaled");
+        }
+        appendLock.lock();
+        try {
+            long seq = lastSeq + 1;
+            MappedByteBuffer segment = segmentFor(seq);
+            int offset = offsetOf(seq);
+            Long previous = lastSeqByAccount.get(accountKey);
+            segment.putLong(offset, seq);
+            segment.putLong(offset + 8, System.currentTimeMillis());
+            segment.putLong(offset + 16, accountKey);
+            segment.putLong(offset + 24, amount);
+            segment.putLong(offset + 32, balanceAfter);
+            segment.putLong(offset + 40, previous == null ? 0 : previous);
+            segment.put(offset + 48, (byte) (type.ordinal() + 1));
+            crc.reset();
+            crc.update(segment.slice(offset, CHECKSUMMED_BYTES));
+            segment.putInt(offset + CHECKSUMMED_BYTES, (int) crc.getValue());
+            lastSeqByAccount.put(accountKey, seq);
+            lastSeq = seq;
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Forces every record appended so far to disk. Concurrent callers share one flush.
+    public void sync() throws IOException {
+        long target = lastSeq;
+        if (syncedSeq >= target) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            target = lastSeq;
+            long from = syncedSeq + 1;
+            while (from <= target) {
+                int segmentIndex = segmentIndexOf(from);
+                long segmentLast = Math.min(target, (long) (segmentIndex + 1) * recordsPerSegment);
+                MappedByteBuffer segment = segments.get(segmentIndex);
+                segment.force(offsetOf(from), (int) (segmentLast - from + 1) * RECORD_SIZE);
+                from = segmentLast + 1;
+            }
+            syncedSeq = target;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Newest first, at most limit entries; reads only this account's records
+    public List<Entry> statement(String accountNo, int limit) {
+        List<Entry> entries = new ArrayList<>();
+        long accountKey = AccountNumbers.pack(accountNo);
+        Long head = accountKey == AccountNumbers.INVALID ? null : lastSeqByAccount.get(accountKey);
+        for (long seq = head == null ? 0 : head; seq != 0 && entries.size() < limit; ) {
+            MappedByteBuffer segment = segments.get(segmentIndexOf(seq));
+            int offset = offsetOf(seq);
+            entries.add(new Entry(seq, segment.getLong(offset + 8), accountNo, segment.getLong(offset + 24),
+                    segment.getLong(offset + 32), EntryType.values()[segment.get(offset + 48) - 1]));
+            seq = segment.getLong(offset + 40);
+        }
+        return entries;
+    }
+
+    // Sequential scan of every record in order
+    public void replay(Visitor visitor) {
+        replay(1, visitor);
+    }
+
+    // Sequential scan of the records from fromSeq on
+    public void replay(long fromSeq, Visitor visitor) {
+        long end = lastSeq;
+        for (long seq = Math.max(1, fromSeq); seq <= end; seq++) {
+            MappedByteBuffer segment = segments.get(segmentIndexOf(seq));
+            int offset = offsetOf(seq);
+            visitor.visit(seq, segment.getLong(offset + 8), segment.getLong(offset + 16),
+                    segment.getLong(offset + 24), segment.getLong(offset + 32),
+                    EntryType.values()[segment.get(offset + 48) - 1]);
+        }
+    }
+
+    // Latest journaled balance of every account, keyed by account number
+    public Map<String, Long> replayBalances() {
+        Map<Long, Long> byKey = new HashMap<>();
+        replay((seq, timestamp, accountKey, amount, balanceAfter, type) -> byKey.put(accountKey, balanceAfter));
+        Map<String, Long> balances = new HashMap<>(byKey.size() * 2);
+        byKey.forEach((key, balance) -> balances.put(AccountNumbers.unpack(key), balance));
+        return balances;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public long getSyncedSeq() {
+        return syncedSeq;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lastSeq=%d syncedSeq=%d segments=%d accounts=%d", lastSeq, syncedSeq,
+                segments.size(), lastSeqByAccount.size());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    // The lock lives as long as the channel; the OS drops it if the process dies
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() != null) {
+                return channel;
+            }
+        } catch (OverlappingFileLockException e) {
+            // Held by another journal in this process
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        closeQuietly(channel);
+        throw new IllegalStateException("Transaction journal " + directory + " is in use by another process");
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing more to release
+        }
+    }
+
+    private void openSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            if (!files.get(i).equals(segmentPath(i))) {
+                throw new IOException("Journal segment missing before " + files.get(i).getFileName());
+            }
+            segments.add(map(files.get(i)));
+        }
+    }
+
+    // Finds the tail (first record whose sequence or checksum is wrong) and rebuilds the account index
+    private void recover() {
+        long seq = 1;
+        while (segmentIndexOf(seq) < segments.size()) {
+            MappedByteBuffer segment = segments.get(segmentIndexOf(seq));
+            int offset = offsetOf(seq);
+            if (segment.getLong(offset) != seq) {
+                break;
+            }
+            crc.reset();
+            crc.update(segment.slice(offset, CHECKSUMMED_BYTES));
+            if (segment.getInt(offset + CHECKSUMMED_BYTES) != (int) crc.getValue()) {
+                break;
+            }
+            lastSeqByAccount.put(segment.getLong(offset + 16), seq);
+            seq++;
+        }
+        lastSeq = seq - 1;
+        syncedSeq = lastSeq;
+        clearTail(seq);
+    }
+
+    // Zeroes whatever lies past the tail. A crash can persist later pages before earlier ones,
+    // and a stale but intact record there would rejoin the journal once appends fill the gap.
+    private void clearTail(long from) {
+        for (int index = segmentIndexOf(from); index < segments.size(); index++) {
+            MappedByteBuffer segment = segments.get(index);
+            int start = index == segmentIndexOf(from) ? offsetOf(from) : 0;
+            boolean dirty = false;
+            for (int offset = start; offset < segment.capacity(); offset += 8) {
+                if (segment.getLong(offset) != 0) {
+                    segment.putLong(offset, 0);
+                    dirty = true;
+                }
+            }
+            if (dirty) {
+                segment.force();
+            }
+        }
+    }
+
+    private MappedByteBuffer segmentFor(long seq) throws IOException {
+        int index = segmentIndexOf(seq);
+        while (segments.size() <= index) {
+            segments.add(map(segmentPath(segments.size())));
+        }
+        return segments.get(index);
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%010d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private int segmentIndexOf(long seq) {
+        return (int) ((seq - 1) / recordsPerSegment);
+    }
+
+    private int offsetOf(long seq) {
+        return (int) ((seq - 1) % recordsPerSegment) * RECORD_SIZE;
+    }
+}
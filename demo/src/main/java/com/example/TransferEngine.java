@@ -0,0 +1,182 @@
+package com.example;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves money between accounts in one database transaction. Every account a batch touches is
+// locked with SELECT ... FOR UPDATE in ascending account-number order before anything is
+// written, so two transfers over the same accounts (A->B and B->A) queue on the first shared
+// row instead of deadlocking. The legs are then applied in Java to the locked balances and
+// written back, journaled and cached before the commit, as in TransactionEngine. Deadlocks and
+// serialization failures that still happen (gap locks, other writers) are retried after a
+// short randomized backoff.
+public class TransferEngine {
+    private static final String LOCK_SQL =
+            "SELECT " + Money.select("balance") + " FROM customers WHERE accountNo = ? FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE customers SET balance = " + Money.BIND_PARAM + " WHERE accountNo = ?";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // One side of a leg: the change to an account and its balance afterwards
+    record Posting(String accountNo, long delta, long balanceAfter, TransactionJournal.EntryType type) {}
+
+    private final ConnectionPool pool;
+    private final BalanceCache cache;
+    private final TransactionJournal journal;
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    public TransferEngine(ConnectionPool pool, BalanceCache cache, TransactionJournal journal) {
+        this.pool = pool;
+        this.cache = cache;
+        this.journal = journal;
+    }
+
+    public AccountStore.TransferResult transfer(List<AccountStore.Transfer> legs) throws SQLException {
+        List<String> lockOrder = lockOrder(legs);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                AccountStore.TransferResult result = attempt(legs, lockOrder);
+                if (result.status() == TransactionEngine.Status.SUCCESS) {
+                    committed.increment();
+                }
+                return result;
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !TransactionEngine.isRetryable(e)) {
+                    failed.increment();
+                    throw e;
+                }
+                retries.increment();
+                // Randomized so the transactions that collided do not collide again in lockstep
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(BASE_BACKOFF_NANOS << attempt));
+            }
+        }
+    }
+
+    private AccountStore.TransferResult attempt(List<AccountStore.Transfer> legs, List<String> lockOrder)
+            throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            List<Posting> journaled = new ArrayList<>();
+            try {
+                Map<String, Long> balances = lock(conn, lockOrder);
+                List<Posting> postings = new ArrayList<>();
+                AccountStore.TransferResult result = apply(legs, balances, postings);
+                if (result.status() != TransactionEngine.Status.SUCCESS) {
+                    conn.rollback();
+                    return result;
+                }
+
+                try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+                    for (Map.Entry<String, Long> balance : balances.entrySet()) {
+                        Money.bind(stmt, 1, balance.getValue());
+                        stmt.setString(2, balance.getKey());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                for (Posting posting : postings) {
+                    journal.append(posting.accountNo(), posting.delta(), posting.balanceAfter(), posting.type());
+                    journaled.add(posting);
+                }
+                journal.sync();
+                balances.forEach(cache::put);
+                conn.commit();
+                return result;
+            } catch (SQLException | IOException e) {
+                lockOrder.forEach(cache::invalidate);
+                conn.rollback();
+                for (int i = journaled.size() - 1; i >= 0; i--) {
+                    Posting posting = journaled.get(i);
+                    TransactionEngine.reverse(journal, posting.accountNo(), posting.delta(),
+                            posting.balanceAfter() - posting.delta());
+                }
+                throw e instanceof SQLException sqlException ? sqlException
+                        : new SQLException("Transaction journal write failed", e);
+            }
+        }
+    }
+
+    // Locks the rows in the given order; accounts that do not exist are left out of the map
+    private static Map<String, Long> lock(Connection conn, List<String> lockOrder) throws SQLException {
+        Map<String, Long> balances = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+            for (String accountNo : lockOrder) {
+                stmt.setString(1, accountNo);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        balances.put(accountNo, Money.read(rs, 1));
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    // Distinct accounts of the batch in the canonical locking order. Also rejects malformed
+    // legs, which are caller errors rather than business outcomes.
+    static List<String> lockOrder(List<AccountStore.Transfer> legs) {
+        if (legs.isEmpty()) {
+            throw new IllegalArgumentException("No transfer legs");
+        }
+        TreeSet<String> accounts = new TreeSet<>();
+        for (AccountStore.Transfer leg : legs) {
+            if (leg.amount() <= 0 || leg.fromAccountNo().equals(leg.toAccountNo())) {
+                throw new IllegalArgumentException("Invalid transfer leg: " + leg);
+            }
+            accounts.add(leg.fromAccountNo());
+            accounts.add(leg.toAccountNo());
+        }
+        return new ArrayList<>(accounts);
+    }
+
+    // Applies the legs in order to the locked balances, collecting the journal postings. On
+    // anything but SUCCESS the caller must discard both.
+    static AccountStore.TransferResult apply(List<AccountStore.Transfer> legs, Map<String, Long> balances,
+                                             List<Posting> postings) {
+        for (int i = 0; i < legs.size(); i++) {
+            AccountStore.Transfer leg = legs.get(i);
+            Long from = balances.get(leg.fromAccountNo());
+            Long to = balances.get(leg.toAccountNo());
+            if (from == null || to == null) {
+                return new AccountStore.TransferResult(TransactionEngine.Status.ACCOUNT_NOT_FOUND, i, 0);
+            }
+            if (from < leg.amount()) {
+                return new AccountStore.TransferResult(TransactionEngine.Status.INSUFFICIENT_FUNDS, i, from);
+            }
+            long debited = Money.subtract(from, leg.amount());
+            long credited = Money.add(to, leg.amount());
+            balances.put(leg.fromAccountNo(), debited);
+            balances.put(leg.toAccountNo(), credited);
+            postings.add(new Posting(leg.fromAccountNo(), -leg.amount(), debited,
+                    TransactionJournal.EntryType.TRANSFER_OUT));
+            postings.add(new Posting(leg.toAccountNo(), leg.amount(), credited,
+                    TransactionJournal.EntryType.TRANSFER_IN));
+        }
+        return new AccountStore.TransferResult(TransactionEngine.Status.SUCCESS, -1,
+                balances.get(legs.get(0).fromAccountNo()));
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("committed=%d retries=%d failed=%d", committed.sum(), retries.sum(), failed.sum());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class BankingServerTest {
+    private BankingServer server;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        server = new BankingServer(0);
+        Thread.ofVirtual().start(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                // closed by stopServer
+            }
+        });
+    }
+
+    @AfterEach
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void readLineSplitsOnNewlinesAndStripsCarriageReturns() throws IOException {
+        BufferedReader in = new BufferedReader(new StringReader("QUIT\r\nBALANCE\nlast"));
+        StringBuilder buffer = new StringBuilder();
+        assertEquals("QUIT", BankingServer.readLine(in, buffer));
+        assertEquals("BALANCE", BankingServer.readLine(in, buffer));
+        assertEquals("last", BankingServer.readLine(in, buffer));
+        assertNull(BankingServer.readLine(in, buffer));
+    }
+
+    @Test
+    public void readLineAcceptsMaximumLengthWithCarriageReturn() throws IOException {
+        String longest = "A".repeat(BankingServer.MAX_LINE_LENGTH);
+        BufferedReader in = new BufferedReader(new StringReader(longest + "\r\n" + longest + "\n"));
+        StringBuilder buffer = new StringBuilder();
+        assertEquals(longest, BankingServer.readLine(in, buffer));
+        assertEquals(longest, BankingServer.readLine(in, buffer));
+    }
+
+    @Test
+    public void readLineStopsOneCharacterPastTheLimit() throws IOException {
+        BufferedReader in = new BufferedReader(new StringReader("A".repeat(1_000_000)));
+        String line = BankingServer.readLine(in, new StringBuilder());
+        assertEquals(BankingServer.MAX_LINE_LENGTH + 1, line.length());
+    }
+
+    @Test
+    public void oversizedRequestIsRejectedAndConnectionClosed() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("Welcome to Secure Bank System", in.readLine());
+            assertEquals(".", in.readLine());
+
+            // A line with no end; the server must answer without waiting for it
+            OutputStream out = socket.getOutputStream();
+            out.write("A".repeat(BankingServer.MAX_LINE_LENGTH * 4).getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            List<String> response = new ArrayList<>();
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    response.add(line);
+                }
+            } catch (SocketException e) {
+                // reset because the rest of the request was never read; the response came first
+            }
+            assertEquals(List.of("Request too long", "."), response);
+        }
+    }
+
+    @Test
+    public void serverKeepsAcceptingAfterOversizedRequest() throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            socket.getOutputStream().write(new byte[BankingServer.MAX_LINE_LENGTH * 2]);
+        }
+        try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals("Welcome to Secure Bank System", in.readLine());
+            assertEquals(".", in.readLine());
+            socket.getOutputStream().write("QUIT\n".getBytes(StandardCharsets.US_ASCII));
+            assertTrue(in.readLine().contains("Goodbye"));
+        }
+    }
+}
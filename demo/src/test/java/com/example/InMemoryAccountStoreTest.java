@@ -0,0 +1,280 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.AccountStore.Transfer;
+import com.example.AccountStore.TransferResult;
+import com.example.TransactionEngine.Status;
+import com.example.TransactionJournal.Entry;
+import com.example.TransactionJournal.EntryType;
+
+public class InMemoryAccountStoreTest {
+    private static final byte[] PASSWORD = {1, 2, 3};
+    private static final byte[] SALT = {4, 5, 6};
+
+    @TempDir
+    Path dir;
+
+    private TransactionJournal journal;
+
+    private static String account(int i) {
+        return String.format("AB%05d", i);
+    }
+
+    private static long total(InMemoryAccountStore store) {
+        AtomicLong total = new AtomicLong();
+        store.forEachAccount(accountNo -> total.addAndGet(store.getBalance(accountNo)));
+        return total.get();
+    }
+
+    // A store that is never closed stands in for a killed process: it takes no final snapshot,
+    // and only what reached the journal and the account log survives. The previous journal is
+    // closed first, as the OS would drop a dead process's journal lock.
+    private InMemoryAccountStore open(Path snapshot) throws IOException {
+        closeJournal();
+        journal = new TransactionJournal(dir.resolve("journal"), 16);
+        return new InMemoryAccountStore(journal, snapshot, 0);
+    }
+
+    @AfterEach
+    public void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void restartAfterCrashReplaysChangesSinceTheSnapshot() throws Exception {
+        Path snapshot = dir.resolve("accounts.snapshot");
+        InMemoryAccountStore crashed = open(snapshot);
+        crashed.create("AB00001", PASSWORD, SALT, 1_000);
+        crashed.create("AB00002", PASSWORD, SALT, 500);
+        crashed.create("AB00003", PASSWORD, SALT, 0);
+        crashed.updateBalance("AB00001", 100, true);
+        crashed.snapshot();
+
+        crashed.updateBalance("AB00001", 300, false);
+        crashed.transfer("AB00002", "AB00003", 200);
+        crashed.create("AB00004", new byte[] {9, 9}, SALT, 700);
+        crashed.updateBalance("AB00004", 50, true);
+        crashed.remove("AB00003");
+
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(3, store.size());
+            assertEquals(800, store.getBalance("AB00001"));
+            assertEquals(300, store.getBalance("AB00002"));
+            assertEquals(AccountStore.NO_ACCOUNT, store.getBalance("AB00003"));
+            assertEquals(750, store.getBalance("AB00004"));
+            assertArrayEquals(new byte[] {9, 9}, store.findCredentials("AB00004").password());
+            store.updateBalance("AB00001", 1, true);
+        }
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(801, store.getBalance("AB00001"));
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test
+    public void restartAfterCrashBeforeAnySnapshot() throws Exception {
+        Path snapshot = dir.resolve("accounts.snapshot");
+        InMemoryAccountStore crashed = open(snapshot);
+        for (int i = 0; i < 40; i++) {
+            crashed.create(account(i), PASSWORD, SALT, 1_000);
+            crashed.updateBalance(account(i), i, true);
+        }
+
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(40, store.size());
+            for (int i = 0; i < 40; i++) {
+                assertEquals(1_000 + i, store.getBalance(account(i)));
+            }
+        }
+    }
+
+    @Test
+    public void tornAccountLogRecordIsDropped() throws Exception {
+        Path snapshot = dir.resolve("accounts.snapshot");
+        InMemoryAccountStore crashed = open(snapshot);
+        crashed.create("AB00001", PASSWORD, SALT, 1_000);
+        Files.write(dir.resolve("accounts.snapshot.accounts"), new byte[] {1, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(1, store.size());
+            store.create("AB00002", PASSWORD, SALT, 2_000);
+        }
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(1_000, store.getBalance("AB00001"));
+            assertEquals(2_000, store.getBalance("AB00002"));
+        }
+    }
+
+    // A journal whose flush fails on demand, as a full or failing disk would
+    private static final class FailingJournal extends TransactionJournal {
+        volatile boolean failing;
+
+        FailingJournal(Path directory) {
+            super(directory, 16);
+        }
+
+        @Override
+        public void sync() throws IOException {
+            if (failing) {
+                throw new IOException("disk gone");
+            }
+            super.sync();
+        }
+    }
+
+    @Test
+    public void failedSyncLeavesNoChangeBehind() throws Exception {
+        Path snapshot = dir.resolve("accounts.snapshot");
+        FailingJournal failing = new FailingJournal(dir.resolve("journal"));
+        journal = failing;
+        try (InMemoryAccountStore store = new InMemoryAccountStore(failing, snapshot, 0)) {
+            store.create("AB00001", PASSWORD, SALT, 1_000);
+            store.create("AB00002", PASSWORD, SALT, 0);
+
+            failing.failing = true;
+            assertThrows(SQLException.class, () -> store.updateBalance("AB00001", 300, false));
+            assertThrows(SQLException.class, () -> store.transfer("AB00001", "AB00002", 400));
+            assertThrows(SQLException.class, () -> store.create("AB00003", PASSWORD, SALT, 50));
+            assertEquals(1_000, store.getBalance("AB00001"));
+            assertEquals(0, store.getBalance("AB00002"));
+            assertEquals(AccountStore.NO_ACCOUNT, store.getBalance("AB00003"));
+            assertEquals(2, store.size());
+
+            Entry reversal = journal.statement("AB00001", 1).get(0);
+            assertEquals(EntryType.REVERSAL, reversal.type());
+            assertEquals(400, reversal.amount());
+            assertEquals(1_000, reversal.balanceAfter());
+            failing.failing = false;
+        }
+        // The reversals bring a replay back to the same balances
+        Files.delete(snapshot);
+        try (InMemoryAccountStore store = open(snapshot)) {
+            assertEquals(2, store.size());
+            assertEquals(1_000, store.getBalance("AB00001"));
+            assertEquals(0, store.getBalance("AB00002"));
+        }
+    }
+
+    @Test
+    public void transferMovesMoneyBetweenAccounts() throws Exception {
+        try (InMemoryAccountStore store = new InMemoryAccountStore()) {
+            store.create("AB00001", PASSWORD, SALT, 1_000);
+            store.create("CD00002", PASSWORD, SALT, 0);
+            TransferResult result = store.transfer("AB00001", "CD00002", 400);
+            assertEquals(new TransferResult(Status.SUCCESS, -1, 600), result);
+            assertEquals(600, store.getBalance("AB00001"));
+            assertEquals(400, store.getBalance("CD00002"));
+        }
+    }
+
+    @Test
+    public void insufficientFundsAppliesNoLeg() throws Exception {
+        try (InMemoryAccountStore store = new InMemoryAccountStore()) {
+            store.create("AB00001", PASSWORD, SALT, 1_000);
+            store.create("AB00002", PASSWORD, SALT, 100);
+            store.create("AB00003", PASSWORD, SALT, 0);
+            assertEquals(new TransferResult(Status.INSUFFICIENT_FUNDS, 0, 100),
+                    store.transfer("AB00002", "AB00003", 101));
+            // The first leg would succeed on its own; the second fails, so neither is applied
+            TransferResult result = store.transfer(List.of(new Transfer("AB00001", "AB00002", 500),
+                    new Transfer("AB00003", "AB00001", 1)));
+            assertEquals(new TransferResult(Status.INSUFFICIENT_FUNDS, 1, 0), result);
+            assertEquals(1_000, store.getBalance("AB00001"));
+            assertEquals(100, store.getBalance("AB00002"));
+            assertEquals(0, store.getBalance("AB00003"));
+        }
+    }
+
+    @Test
+    public void missingAccountFailsTheTransfer() throws Exception {
+        try (InMemoryAccountStore store = new InMemoryAccountStore()) {
+            store.create("AB00001", PASSWORD, SALT, 1_000);
+            assertEquals(Status.ACCOUNT_NOT_FOUND, store.transfer("AB00001", "AB99999", 1).status());
+            assertEquals(1_000, store.getBalance("AB00001"));
+        }
+    }
+
+    @Test
+    public void selfTransferIsRejected() throws Exception {
+        try (InMemoryAccountStore store = new InMemoryAccountStore()) {
+            store.create("AB00001", PASSWORD, SALT, 1_000);
+            assertThrows(IllegalArgumentException.class, () -> store.transfer("AB00001", "AB00001", 1));
+            assertThrows(IllegalArgumentException.class, () -> store.transfer("AB00001", "AB00002", 0));
+            assertEquals(1_000, store.getBalance("AB00001"));
+        }
+    }
+
+    // Opposing transfers over overlapping stripes must neither deadlock nor lose money, and a
+    // snapshot taken mid-flight must hold the same total
+    @Test
+    public void concurrentTransfersAndSnapshotsConserveMoney() throws Exception {
+        Path snapshot = dir.resolve("accounts.snapshot");
+        int accounts = 40;
+        try (InMemoryAccountStore store = new InMemoryAccountStore(null, snapshot, 0)) {
+            for (int i = 0; i < accounts; i++) {
+                store.create(account(i), PASSWORD, SALT, 10_000);
+            }
+            long expected = accounts * 10_000L;
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                    List<Future<?>> workers = new ArrayList<>();
+                    for (int t = 0; t < 8; t++) {
+                        long seed = t;
+                        workers.add(executor.submit(() -> {
+                            Random random = new Random(seed);
+                            for (int i = 0; i < 20_000; i++) {
+                                int from = random.nextInt(accounts);
+                                int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                                store.transfer(account(from), account(to), 1 + random.nextInt(500));
+                            }
+                            return null;
+                        }));
+                    }
+                    for (int i = 0; i < 20; i++) {
+                        store.snapshot();
+                        Path copy = dir.resolve("copy-" + i);
+                        Files.copy(snapshot, copy, StandardCopyOption.REPLACE_EXISTING);
+                        Files.copy(dir.resolve("accounts.snapshot.accounts"), dir.resolve("copy-" + i + ".accounts"),
+                                StandardCopyOption.REPLACE_EXISTING);
+                        try (InMemoryAccountStore loaded = new InMemoryAccountStore(null, copy, 0)) {
+                            assertEquals(accounts, loaded.size());
+                            assertEquals(expected, total(loaded), "snapshot " + i);
+                        }
+                    }
+                    for (Future<?> worker : workers) {
+                        worker.get();
+                    }
+                });
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(expected, total(store));
+        }
+    }
+}
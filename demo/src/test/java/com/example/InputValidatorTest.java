@@ -0,0 +1,125 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+// The scanners must accept exactly what the original regular expressions accepted
+public class InputValidatorTest {
+    private static final Pattern ACCOUNT = Pattern.compile("[A-Z]{2,3}\\d{5,8}");
+    private static final Pattern[] PASSWORD_CLASSES = {
+        Pattern.compile(".*[A-Z].*"), Pattern.compile(".*[a-z].*"),
+        Pattern.compile(".*\\d.*"), Pattern.compile(".*[!@#$%^&*].*")
+    };
+    // Characters around every boundary the scanners test, plus line terminators and non-ASCII digits
+    private static final String ALPHABET = "@AZ[`az{/09:!#$%^&*()_- aB3\n\r\u0085  ٠É";
+
+    private static boolean regexAccount(String accountNo) {
+        return accountNo != null && ACCOUNT.matcher(accountNo).matches() && accountNo.length() <= 20;
+    }
+
+    private static boolean regexPassword(String password) {
+        if (password == null || password.length() < 8) {
+            return false;
+        }
+        for (Pattern pattern : PASSWORD_CLASSES) {
+            if (!pattern.matcher(password).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void accountNumberExamples() {
+        assertTrue(InputValidator.validateAccountNumber("AB12345"));
+        assertTrue(InputValidator.validateAccountNumber("ABC12345678"));
+        assertFalse(InputValidator.validateAccountNumber(null));
+        assertFalse(InputValidator.validateAccountNumber("A123456"));
+        assertFalse(InputValidator.validateAccountNumber("ABCD12345"));
+        assertFalse(InputValidator.validateAccountNumber("AB1234"));
+        assertFalse(InputValidator.validateAccountNumber("AB123456789"));
+        assertFalse(InputValidator.validateAccountNumber("ab12345"));
+        assertFalse(InputValidator.validateAccountNumber("AB12345\n"));
+        assertFalse(InputValidator.validateAccountNumber("AB٠١٢٣٤"));
+    }
+
+    @Test
+    public void passwordExamples() {
+        assertTrue(InputValidator.validatePassword("Secur3P@ss"));
+        assertTrue(InputValidator.validatePassword("aA1!aaaa"));
+        assertFalse(InputValidator.validatePassword("aA1!aaa"));
+        assertFalse(InputValidator.validatePassword("aa1!aaaa"));
+        assertFalse(InputValidator.validatePassword("AA1!AAAA"));
+        assertFalse(InputValidator.validatePassword("aAb!aaaa"));
+        assertFalse(InputValidator.validatePassword("aA1?aaaa"));
+        assertFalse(InputValidator.validatePassword("aA1!aaaa\nb"));
+        assertFalse(InputValidator.validatePassword(null));
+    }
+
+    @Test
+    public void accountNumberMatchesRegexOnRandomInput() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            String candidate = i % 2 == 0 ? randomString(random, 14) : nearAccountNumber(random);
+            assertEquals(regexAccount(candidate), InputValidator.validateAccountNumber(candidate), candidate);
+        }
+    }
+
+    @Test
+    public void passwordMatchesRegexOnRandomInput() {
+        Random random = new Random(13);
+        for (int i = 0; i < 200_000; i++) {
+            String candidate = randomString(random, 14);
+            assertEquals(regexPassword(candidate), InputValidator.validatePassword(candidate), candidate);
+        }
+    }
+
+    @Test
+    public void amountBounds() {
+        assertFalse(InputValidator.validateAmount(0));
+        assertFalse(InputValidator.validateAmount(-1));
+        assertTrue(InputValidator.validateAmount(1));
+        assertTrue(InputValidator.validateAmount(Money.ofMajor(1_000_000)));
+        assertFalse(InputValidator.validateAmount(Money.ofMajor(1_000_000) + 1));
+    }
+
+    @Test
+    public void validateRecordsChecksEveryColumn() {
+        String[] accountNos = {"AB12345", "bad", "AB12345", "AB12345", null};
+        String[] passwords = {"Secur3P@ss", "Secur3P@ss", "weak", "Secur3P@ss", "Secur3P@ss"};
+        long[] amounts = {100, 100, 100, 0, 100};
+        boolean[] valid = new boolean[5];
+        assertEquals(1, InputValidator.validateRecords(accountNos, passwords, amounts, 5, valid));
+        assertArrayEquals(new boolean[] {true, false, false, false, false}, valid);
+    }
+
+    private static String randomString(Random random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+        }
+        return new String(chars);
+    }
+
+    // Mostly well-formed account numbers with the occasional wrong character or length
+    private static String nearAccountNumber(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            sb.append((char) ('A' + random.nextInt(26)));
+        }
+        for (int i = 3 + random.nextInt(8); i > 0; i--) {
+            sb.append((char) ('0' + random.nextInt(10)));
+        }
+        if (random.nextInt(4) == 0) {
+            sb.setCharAt(random.nextInt(sb.length()), ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return sb.toString();
+    }
+}
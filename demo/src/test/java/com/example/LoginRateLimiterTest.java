@@ -0,0 +1,97 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.LoginRateLimiter.Decision;
+
+// Times are passed in explicitly; the limiter's windows start when it is constructed, so
+// times taken just after construction sit at the very start of a window
+public class LoginRateLimiterTest {
+    private static final long WINDOW_SECONDS = 60;
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(WINDOW_SECONDS);
+
+    private static int allowed(LoginRateLimiter limiter, String accountNo, String source, long now, int attempts) {
+        int allowed = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(accountNo, source, now) == Decision.ALLOWED) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Test
+    public void accountIsThrottledAtItsLimit() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 100, WINDOW_SECONDS, 1_000);
+        long now = System.nanoTime();
+        assertEquals(3, allowed(limiter, "AB12345", "10.0.0.1", now, 3));
+        assertEquals(Decision.ACCOUNT_THROTTLED, limiter.tryAcquire("AB12345", "10.0.0.2", now));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire("CD67890", "10.0.0.1", now));
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    public void previousWindowIsWeightedByItsOverlap() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 100, WINDOW_SECONDS, 1_000);
+        long start = System.nanoTime();
+        assertEquals(3, allowed(limiter, "AB12345", "10.0.0.1", start, 3));
+        // Half way through the next window the three old attempts weigh 1.5: room for two more
+        assertEquals(2, allowed(limiter, "AB12345", "10.0.0.1", start + WINDOW * 3 / 2, 5));
+        // Two windows on, the history is gone
+        assertEquals(3, allowed(limiter, "AB12345", "10.0.0.1", start + WINDOW * 4, 5));
+    }
+
+    @Test
+    public void successClearsTheAccountHistory() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 100, WINDOW_SECONDS, 1_000);
+        long now = System.nanoTime();
+        allowed(limiter, "AB12345", "10.0.0.1", now, 3);
+        assertEquals(Decision.ACCOUNT_THROTTLED, limiter.tryAcquire("AB12345", "10.0.0.1", now));
+        limiter.onSuccess("AB12345");
+        assertEquals(3, allowed(limiter, "AB12345", "10.0.0.1", now, 5));
+    }
+
+    @Test
+    public void sourceIsThrottledAcrossAccounts() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 5, WINDOW_SECONDS, 1_000);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Decision.ALLOWED, limiter.tryAcquire(String.format("AB%05d", i), "10.0.0.1", now));
+        }
+        assertEquals(Decision.SOURCE_THROTTLED, limiter.tryAcquire("AB99999", "10.0.0.1", now));
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire("AB99999", "10.0.0.2", now));
+    }
+
+    // An account-throttled attempt must not use up the source's allowance
+    @Test
+    public void throttledAccountDoesNotCountAgainstTheSource() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 3, WINDOW_SECONDS, 1_000);
+        long now = System.nanoTime();
+        assertEquals(Decision.ALLOWED, limiter.tryAcquire("AB12345", "10.0.0.1", now));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Decision.ACCOUNT_THROTTLED, limiter.tryAcquire("AB12345", "10.0.0.1", now));
+        }
+        assertEquals(2, allowed(limiter, "CD67890", "10.0.0.1", now, 1)
+                + allowed(limiter, "EF11111", "10.0.0.1", now, 1));
+    }
+
+    // More distinct keys than the tables hold, all within one window: newcomers are still let in,
+    // and the account under attack keeps its history because it has the most attempts
+    @Test
+    public void saturatedTablesEvictTheQuietestKeys() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 3, WINDOW_SECONDS, 256);
+        long now = System.nanoTime();
+        assertEquals(3, allowed(limiter, "AB12345", "10.0.0.1", now, 3));
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(Decision.ALLOWED,
+                    limiter.tryAcquire(String.format("CD%05d", i), "10.1." + (i >> 8) + "." + (i & 0xff), now), "" + i);
+        }
+        assertEquals(Decision.ACCOUNT_THROTTLED, limiter.tryAcquire("AB12345", "10.0.0.2", now));
+        assertEquals(Decision.SOURCE_THROTTLED, limiter.tryAcquire("EF00001", "10.0.0.1", now));
+    }
+}
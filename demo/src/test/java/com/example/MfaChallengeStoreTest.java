@@ -0,0 +1,129 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.MfaChallengeStore.Outcome;
+
+public class MfaChallengeStoreTest {
+    private static final String ACCOUNT = "AB12345";
+
+    @Test
+    public void acceptsTheIssuedCodeOnce() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            assertTrue(store.issue(ACCOUNT, "012345"));
+            assertEquals(1, store.size());
+            assertEquals(Outcome.ACCEPTED, store.verify(ACCOUNT, "012345"));
+            assertEquals(Outcome.NO_CHALLENGE, store.verify(ACCOUNT, "012345"));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void locksAfterMaxAttempts() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            store.issue(ACCOUNT, "123456");
+            for (int i = 1; i < MfaChallengeStore.MAX_ATTEMPTS; i++) {
+                assertEquals(Outcome.REJECTED, store.verify(ACCOUNT, "654321"));
+            }
+            assertEquals(Outcome.LOCKED, store.verify(ACCOUNT, "654321"));
+            // The right code is no use once the challenge is gone
+            assertEquals(Outcome.NO_CHALLENGE, store.verify(ACCOUNT, "123456"));
+        }
+    }
+
+    @Test
+    public void reissuingResetsAttempts() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            store.issue(ACCOUNT, "123456");
+            for (int i = 1; i < MfaChallengeStore.MAX_ATTEMPTS; i++) {
+                store.verify(ACCOUNT, "000000");
+            }
+            store.issue(ACCOUNT, "222222");
+            assertEquals(1, store.size());
+            assertEquals(Outcome.REJECTED, store.verify(ACCOUNT, "123456"));
+            assertEquals(Outcome.ACCEPTED, store.verify(ACCOUNT, "222222"));
+        }
+    }
+
+    @Test
+    public void malformedEntriesCountAsAttempts() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            store.issue(ACCOUNT, "123456");
+            assertEquals(Outcome.REJECTED, store.verify(ACCOUNT, null));
+            assertEquals(Outcome.REJECTED, store.verify(ACCOUNT, "12345"));
+            assertEquals(Outcome.LOCKED, store.verify(ACCOUNT, "12345a"));
+        }
+    }
+
+    @Test
+    public void challengesAreKeptPerAccount() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            store.issue("AB12345", "111111");
+            store.issue("CD67890", "222222");
+            assertEquals(Outcome.REJECTED, store.verify("AB12345", "222222"));
+            assertEquals(Outcome.ACCEPTED, store.verify("CD67890", "222222"));
+            assertEquals(Outcome.ACCEPTED, store.verify("AB12345", "111111"));
+            assertEquals(Outcome.NO_CHALLENGE, store.verify("not an account", "111111"));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidChallenges() {
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1_000)) {
+            assertThrows(IllegalArgumentException.class, () -> store.issue("bad", "123456"));
+            assertThrows(IllegalArgumentException.class, () -> store.issue(ACCOUNT, "12345"));
+            assertThrows(IllegalArgumentException.class, () -> store.issue(ACCOUNT, "12345x"));
+        }
+    }
+
+    @Test
+    public void refusesNewAccountsWhenFull() {
+        // One challenge per segment; 64 segments
+        try (MfaChallengeStore store = new MfaChallengeStore(60, 1)) {
+            int refused = 0;
+            for (int i = 0; i < 1_000; i++) {
+                if (!store.issue(String.format("AB%05d", i), "123456")) {
+                    refused++;
+                }
+            }
+            assertTrue(refused > 0);
+            assertTrue(store.size() <= 64);
+        }
+    }
+
+    // With no validity at all the deadline is the current tick: the code is dead on arrival,
+    // whether verify or the expiry thread gets to it first
+    @Test
+    public void verifyNeverAcceptsAnExpiredCode() {
+        try (MfaChallengeStore store = new MfaChallengeStore(0, 1_000)) {
+            store.issue(ACCOUNT, "123456");
+            Outcome outcome = store.verify(ACCOUNT, "123456");
+            assertNotEquals(Outcome.ACCEPTED, outcome);
+            assertTrue(outcome == Outcome.EXPIRED || outcome == Outcome.NO_CHALLENGE, outcome.toString());
+        }
+    }
+
+    @Test
+    public void expiryThreadRemovesUnansweredChallenges() throws InterruptedException {
+        try (MfaChallengeStore store = new MfaChallengeStore(1, 1_000)) {
+            for (int i = 0; i < 100; i++) {
+                store.issue(String.format("AB%05d", i), "123456");
+            }
+            assertEquals(100, store.size());
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (store.size() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            assertEquals(0, store.size());
+            assertTrue(store.toString().contains("expired=100"), store.toString());
+            assertEquals(Outcome.NO_CHALLENGE, store.verify("AB00000", "123456"));
+        }
+    }
+}
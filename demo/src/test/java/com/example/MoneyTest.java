@@ -0,0 +1,83 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class MoneyTest {
+    @Test
+    public void parsesWholeAndFractionalAmounts() {
+        assertEquals(12_300, Money.parse("123"));
+        assertEquals(12_340, Money.parse("123.4"));
+        assertEquals(12_345, Money.parse("123.45"));
+        assertEquals(50, Money.parse(".5"));
+        assertEquals(500, Money.parse("5."));
+        assertEquals(1, Money.parse("0.01"));
+        assertEquals(0, Money.parse("0"));
+    }
+
+    @Test
+    public void parsesSignsAndSurroundingWhitespace() {
+        assertEquals(-12_345, Money.parse("-123.45"));
+        assertEquals(12_345, Money.parse("+123.45"));
+        assertEquals(12_345, Money.parse("  123.45\t"));
+    }
+
+    // Amounts are never rounded: a third decimal place is an input error, not half a cent
+    @Test
+    public void rejectsMoreThanTwoDecimalPlaces() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.005"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("0.001"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.000"));
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        for (String text : new String[] {null, "", " ", "-", ".", "1.2.3", "1e5", "12a", "1,000.00", "--1", "$5"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(text), String.valueOf(text));
+        }
+    }
+
+    @Test
+    public void rejectsAmountsThatOverflowCents() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("92233720368547758.08"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("99999999999999999999"));
+    }
+
+    @Test
+    public void formatsWithTwoDecimalPlaces() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("123.45", Money.format(12_345));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-123.40", Money.format(-12_340));
+        assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-92233720368547758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void parseAndFormatAgreeWithBigDecimal() {
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextLong() / (1 + random.nextInt(1_000_000));
+            BigDecimal exact = BigDecimal.valueOf(cents, Money.SCALE);
+            assertEquals(exact.toPlainString(), Money.format(cents));
+            assertEquals(cents, Money.parse(exact.toPlainString()));
+        }
+    }
+
+    @Test
+    public void arithmeticFailsInsteadOfWrapping() {
+        assertEquals(10_000, Money.ofMajor(100));
+        assertEquals(300, Money.add(100, 200));
+        assertEquals(-100, Money.subtract(100, 200));
+        assertThrows(ArithmeticException.class, () -> Money.ofMajor(Long.MAX_VALUE / 10));
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Runs the posters against a JDBC driver that fails on demand; no database needed
+public class PostingEngineTest {
+    private static final String URL = "jdbc:posting-engine-test";
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Driver driver = new FailingDriver();
+    private static volatile RuntimeException batchFailure;
+    private static volatile RuntimeException singleFailure;
+
+    @TempDir
+    Path dir;
+
+    private ConnectionPool pool;
+    private TransactionJournal journal;
+    private PostingEngine engine;
+
+    @BeforeAll
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterAll
+    public static void deregisterDriver() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @BeforeEach
+    public void start() {
+        pool = new ConnectionPool(URL, "user", "password", 2);
+        journal = new TransactionJournal(dir, 16);
+        // One poster, so a second posting only completes if the first failure left it running
+        engine = new PostingEngine(pool, new TransactionEngine(pool, new BalanceCache(16), journal), 1, 8, 0);
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        engine.close();
+        pool.close();
+        journal.close();
+    }
+
+    @Test
+    public void runtimeFailureInBatchFailsOnlyThatBatch() {
+        batchFailure = new IllegalStateException("driver bug");
+        singleFailure = null;
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int i = 0; i < 3; i++) {
+                IllegalStateException e = assertThrows(IllegalStateException.class,
+                        () -> engine.post("AB12345", 100, true));
+                assertEquals("driver bug", e.getMessage());
+            }
+        });
+    }
+
+    @Test
+    public void runtimeFailureInFallbackFailsOnlyThatPosting() {
+        batchFailure = null;
+        singleFailure = new IllegalStateException("driver bug");
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (int i = 0; i < 3; i++) {
+                assertThrows(IllegalStateException.class, () -> engine.post("AB12345", 100, false));
+            }
+        });
+    }
+
+    // executeBatch throws batchFailure, or a non-retryable SQLException so the engine falls back
+    // to posting one at a time; executeUpdate then throws singleFailure
+    private static final class FailingDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid" -> true;
+                        case "getAutoCommit", "isClosed" -> false;
+                        case "prepareStatement" -> statement();
+                        default -> null;
+                    });
+        }
+
+        private static PreparedStatement statement() {
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "executeBatch" -> {
+                                if (batchFailure != null) {
+                                    throw batchFailure;
+                                }
+                                throw new SQLException("Batch rejected", "42000");
+                            }
+                            case "executeUpdate" -> throw singleFailure;
+                            default -> {
+                                return null;
+                            }
+                        }
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return URL.equals(url);
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getLogger(PostingEngineTest.class.getName());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+// Times are passed in explicitly through the package-private overloads
+public class SessionTokensTest {
+    private static final String ACCOUNT = "AB12345";
+    private static final Duration TTL = Duration.ofMinutes(30);
+    private static final long TTL_MILLIS = TTL.toMillis();
+    private static final long NOW = 1_700_000_000_000L;
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private static byte[] secret(int fill) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) fill);
+        return secret;
+    }
+
+    @Test
+    public void issuedTokenVerifiesAsItsAccount() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String token = tokens.issue(ACCOUNT, NOW);
+        assertEquals(56, token.length());
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(token, NOW));
+        assertEquals(AccountNumbers.pack("CD67890"), tokens.verify(tokens.issue("CD67890", NOW), NOW));
+    }
+
+    @Test
+    public void tokenExpiresAfterItsTtl() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String token = tokens.issue(ACCOUNT, NOW);
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(token, NOW + TTL_MILLIS - 1));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(token, NOW + TTL_MILLIS));
+    }
+
+    // Every character carries six bits of the token, so changing any one of them must break the MAC
+    @Test
+    public void tamperedTokensAreRejected() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String token = tokens.issue(ACCOUNT, NOW);
+        for (int i = 0; i < token.length(); i++) {
+            char[] chars = token.toCharArray();
+            chars[i] = ALPHABET.charAt((ALPHABET.indexOf(chars[i]) + 1) % ALPHABET.length());
+            assertEquals(AccountNumbers.INVALID, tokens.verify(new String(chars), NOW), "position " + i);
+        }
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(token, NOW));
+    }
+
+    @Test
+    public void malformedTokensAreRejected() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String token = tokens.issue(ACCOUNT, NOW);
+        assertEquals(AccountNumbers.INVALID, tokens.verify(null, NOW));
+        assertEquals(AccountNumbers.INVALID, tokens.verify("", NOW));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(token.substring(1), NOW));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(token + "A", NOW));
+        assertEquals(AccountNumbers.INVALID, tokens.verify("!".repeat(56), NOW));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(token.substring(0, 55) + "é", NOW));
+    }
+
+    @Test
+    public void sharedSecretIsRequiredToVerify() {
+        SessionTokens first = new SessionTokens(TTL, secret(1));
+        SessionTokens second = new SessionTokens(TTL, secret(1));
+        SessionTokens other = new SessionTokens(TTL, secret(2));
+        String token = first.issue(ACCOUNT, NOW);
+        assertEquals(AccountNumbers.pack(ACCOUNT), second.verify(token, NOW));
+        assertEquals(AccountNumbers.INVALID, other.verify(token, NOW));
+        assertEquals(AccountNumbers.INVALID, new SessionTokens(TTL).verify(token, NOW));
+    }
+
+    @Test
+    public void rotationKeepsOldTokensUntilTheyExpire() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String before = tokens.issue(ACCOUNT, NOW);
+        int oldKey = tokens.getCurrentKeyId();
+        tokens.rotate(NOW + 1);
+        assertNotEquals(oldKey, tokens.getCurrentKeyId());
+
+        String after = tokens.issue(ACCOUNT, NOW + 2);
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(before, NOW + 2));
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(after, NOW + 2));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(before, NOW + TTL_MILLIS));
+
+        // The retired key is dropped at the next rotation after its tokens are gone
+        tokens.rotate(NOW + 1 + TTL_MILLIS);
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(after, NOW + 1 + TTL_MILLIS));
+        assertEquals(AccountNumbers.INVALID, tokens.verify(before, NOW + 2));
+    }
+
+    @Test
+    public void revokedTokenIsRejected() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String revoked = tokens.issue(ACCOUNT, NOW);
+        String kept = tokens.issue(ACCOUNT, NOW);
+        tokens.revoke(revoked, NOW);
+        tokens.revoke(revoked, NOW);
+        assertEquals(1, tokens.getRevokedCount());
+        assertEquals(AccountNumbers.INVALID, tokens.verify(revoked, NOW));
+        assertEquals(AccountNumbers.pack(ACCOUNT), tokens.verify(kept, NOW));
+    }
+
+    @Test
+    public void invalidTokensAreNotRevoked() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        String token = tokens.issue(ACCOUNT, NOW);
+        tokens.revoke(null, NOW);
+        tokens.revoke("!".repeat(56), NOW);
+        tokens.revoke(new SessionTokens(TTL).issue(ACCOUNT, NOW), NOW);
+        tokens.revoke(token, NOW + TTL_MILLIS);
+        assertEquals(0, tokens.getRevokedCount());
+    }
+
+    // Revocations live in the node that received the LOGOUT
+    @Test
+    public void revocationIsPerNode() {
+        SessionTokens first = new SessionTokens(TTL, secret(1));
+        SessionTokens second = new SessionTokens(TTL, secret(1));
+        String token = first.issue(ACCOUNT, NOW);
+        first.revoke(token, NOW);
+        assertEquals(AccountNumbers.INVALID, first.verify(token, NOW));
+        assertEquals(AccountNumbers.pack(ACCOUNT), second.verify(token, NOW));
+    }
+
+    @Test
+    public void expiredRevocationsArePruned() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        for (int i = 0; i < 100; i++) {
+            tokens.revoke(tokens.issue(ACCOUNT, NOW), NOW);
+        }
+        assertEquals(100, tokens.getRevokedCount());
+        tokens.rotate(NOW + TTL_MILLIS - 1);
+        assertEquals(100, tokens.getRevokedCount());
+        tokens.rotate(NOW + TTL_MILLIS);
+        assertEquals(0, tokens.getRevokedCount());
+    }
+
+    // A logout burst must neither take quadratic time nor keep ids that have expired
+    @Test
+    public void burstOfRevocationsIsPrunedAsItGrows() {
+        SessionTokens tokens = new SessionTokens(TTL);
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int i = 0; i < 100_000; i++) {
+                long now = NOW + i * 100L;
+                tokens.revoke(tokens.issue(String.format("AB%05d", i), now), now);
+            }
+        });
+        // Tokens last 18,000 steps of 100 ms; the map never holds more than about twice that
+        int revoked = tokens.getRevokedCount();
+        assertTrue(revoked >= 17_999 && revoked <= 2 * 18_000, "" + revoked);
+    }
+}
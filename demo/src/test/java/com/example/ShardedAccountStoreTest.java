@@ -0,0 +1,113 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.AccountStore.Transfer;
+import com.example.AccountStore.TransferResult;
+import com.example.TransactionEngine.Status;
+
+public class ShardedAccountStoreTest {
+    private static final byte[] PASSWORD = {1, 2, 3};
+    private static final byte[] SALT = {4, 5, 6};
+
+    private static ShardedAccountStore twoShards() {
+        return new ShardedAccountStore(List.of(new InMemoryAccountStore(), new InMemoryAccountStore()));
+    }
+
+    // The first account number from start that the store places on the given shard
+    private static String accountOn(ShardedAccountStore store, int shard, int start) {
+        for (int i = start; ; i++) {
+            String accountNo = String.format("AB%05d", i);
+            if (store.shardOf(accountNo) == shard) {
+                return accountNo;
+            }
+        }
+    }
+
+    @Test
+    public void crossShardTransferMovesMoney() throws Exception {
+        ShardedAccountStore store = twoShards();
+        String from = accountOn(store, 0, 0);
+        String to = accountOn(store, 1, 0);
+        store.create(from, PASSWORD, SALT, 1_000);
+        store.create(to, PASSWORD, SALT, 0);
+        assertEquals(new TransferResult(Status.SUCCESS, -1, 600), store.transfer(from, to, 400));
+        assertEquals(600, store.getBalance(from));
+        assertEquals(400, store.getBalance(to));
+    }
+
+    @Test
+    public void failedLaterLegUndoesEarlierLegs() throws Exception {
+        ShardedAccountStore store = twoShards();
+        String rich = accountOn(store, 0, 0);
+        String other = accountOn(store, 1, 0);
+        String poor = accountOn(store, 1, Integer.parseInt(other.substring(2)) + 1);
+        store.create(rich, PASSWORD, SALT, 1_000);
+        store.create(other, PASSWORD, SALT, 0);
+        store.create(poor, PASSWORD, SALT, 0);
+        TransferResult result = store.transfer(List.of(new Transfer(rich, other, 100), new Transfer(poor, rich, 1)));
+        assertEquals(Status.INSUFFICIENT_FUNDS, result.status());
+        assertEquals(1, result.failedLeg());
+        assertEquals(1_000, store.getBalance(rich));
+        assertEquals(0, store.getBalance(other));
+        assertEquals(0, store.getBalance(poor));
+    }
+
+    // The credit of a transfer that is later undone must never be spendable in between: if it
+    // were, the undo would fail and the debit's refund would create money
+    @Test
+    public void creditOfAnUndoneTransferIsNeverSpent() throws Exception {
+        ShardedAccountStore store = twoShards();
+        String rich = accountOn(store, 0, 0);
+        String other = accountOn(store, 1, 0);
+        String poor = accountOn(store, 0, Integer.parseInt(rich.substring(2)) + 1);
+        assertNotEquals(store.shardOf(rich), store.shardOf(other));
+        store.create(rich, PASSWORD, SALT, 1_000_000);
+        store.create(other, PASSWORD, SALT, 0);
+        store.create(poor, PASSWORD, SALT, 0);
+
+        AtomicBoolean done = new AtomicBoolean();
+        LongAdder withdrawn = new LongAdder();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+                Future<?> spender = executor.submit(() -> {
+                    while (!done.get()) {
+                        if (store.updateBalance(other, 100, false).status() == Status.SUCCESS) {
+                            withdrawn.add(100);
+                        }
+                    }
+                    return null;
+                });
+                Future<?> transfers = executor.submit(() -> {
+                    try {
+                        for (int i = 0; i < 50_000; i++) {
+                            store.transfer(List.of(new Transfer(rich, other, 100), new Transfer(poor, rich, 1)));
+                        }
+                    } finally {
+                        done.set(true);
+                    }
+                    return null;
+                });
+                transfers.get();
+                spender.get();
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, withdrawn.sum());
+        assertEquals(1_000_000, store.getBalance(rich) + store.getBalance(other) + store.getBalance(poor));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.TransactionJournal.Entry;
+import com.example.TransactionJournal.EntryType;
+
+public class TransactionJournalTest {
+    private static final int RECORDS_PER_SEGMENT = 4;
+
+    @TempDir
+    Path dir;
+
+    // Ten records alternating between two accounts; AB12345 ends at 500, CD67890 at 400
+    private void writeTen() throws IOException {
+        try (TransactionJournal journal = new TransactionJournal(dir, RECORDS_PER_SEGMENT)) {
+            for (int i = 1; i <= 10; i++) {
+                journal.append(i % 2 == 1 ? "AB12345" : "CD67890", 100, (i + 1) / 2 * 100L, EntryType.DEPOSIT);
+            }
+        }
+    }
+
+    private TransactionJournal reopen() {
+        return new TransactionJournal(dir, RECORDS_PER_SEGMENT);
+    }
+
+    private Path segment(int index) {
+        return dir.resolve(String.format("%010d.journal", index));
+    }
+
+    private void overwrite(long seq, int field, long value) throws IOException {
+        long offset = (seq - 1) % RECORDS_PER_SEGMENT * TransactionJournal.RECORD_SIZE + field;
+        try (FileChannel channel = FileChannel.open(segment((int) ((seq - 1) / RECORDS_PER_SEGMENT)),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, value), offset);
+        }
+    }
+
+    private static List<Long> seqs(List<Entry> entries) {
+        return entries.stream().map(Entry::seq).toList();
+    }
+
+    @Test
+    public void recoversAcrossSegmentRollover() throws IOException {
+        writeTen();
+        assertEquals(3, Files.list(dir).filter(path -> path.toString().endsWith(".journal")).count());
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(10, journal.getLastSeq());
+            assertEquals(List.of(9L, 7L, 5L, 3L, 1L), seqs(journal.statement("AB12345", 10)));
+            assertEquals(List.of(10L, 8L, 6L), seqs(journal.statement("CD67890", 3)));
+            assertEquals(Map.of("AB12345", 500L, "CD67890", 500L), journal.replayBalances());
+
+            // Appends continue the chain from the recovered index
+            assertEquals(11, journal.append("AB12345", -50, 450, EntryType.WITHDRAWAL));
+            Entry latest = journal.statement("AB12345", 2).get(0);
+            assertEquals(new Entry(11, latest.timestamp(), "AB12345", -50, 450, EntryType.WITHDRAWAL), latest);
+            assertEquals(List.of(11L, 9L), seqs(journal.statement("AB12345", 2)));
+        }
+    }
+
+    @Test
+    public void checksumMismatchEndsTheJournal() throws IOException {
+        writeTen();
+        overwrite(7, 24, 1_000_000); // amount changed after the CRC was computed
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(6, journal.getLastSeq());
+            assertEquals(List.of(5L, 3L, 1L), seqs(journal.statement("AB12345", 10)));
+            assertEquals(List.of(6L, 4L, 2L), seqs(journal.statement("CD67890", 10)));
+            assertEquals(Map.of("AB12345", 300L, "CD67890", 300L), journal.replayBalances());
+        }
+    }
+
+    @Test
+    public void tornRecordEndsTheJournal() throws IOException {
+        writeTen();
+        overwrite(8, 0, 0); // sequence never reached the disk
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(7, journal.getLastSeq());
+            assertEquals(8, journal.append("CD67890", 1, 301, EntryType.DEPOSIT));
+            assertEquals(List.of(8L, 6L), seqs(journal.statement("CD67890", 2)));
+        }
+    }
+
+    @Test
+    public void tailAtSegmentBoundary() throws IOException {
+        writeTen();
+        overwrite(5, 60, 0);
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(4, journal.getLastSeq());
+            assertEquals(5, journal.append("AB12345", 1, 201, EntryType.DEPOSIT));
+            assertEquals(List.of(5L, 3L, 1L), seqs(journal.statement("AB12345", 10)));
+        }
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(5, journal.getLastSeq());
+        }
+    }
+
+    // Records 8-10 survive the crash but 7 does not; once a new 7 is appended they must not
+    // come back as if they followed it
+    @Test
+    public void intactRecordsPastTheTailAreDiscarded() throws IOException {
+        writeTen();
+        overwrite(7, 24, 1_000_000);
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(6, journal.getLastSeq());
+            journal.append("AB12345", 1, 301, EntryType.DEPOSIT);
+        }
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(7, journal.getLastSeq());
+            assertEquals(List.of(6L, 4L, 2L), seqs(journal.statement("CD67890", 10)));
+            assertEquals(Map.of("AB12345", 301L, "CD67890", 300L), journal.replayBalances());
+        }
+    }
+
+    @Test
+    public void secondWriterIsRefusedUntilTheFirstCloses() throws IOException {
+        writeTen();
+        try (TransactionJournal journal = reopen()) {
+            assertThrows(IllegalStateException.class, this::reopen);
+            assertEquals(11, journal.append("AB12345", 1, 501, EntryType.DEPOSIT));
+        }
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(11, journal.getLastSeq());
+        }
+    }
+
+    @Test
+    public void missingSegmentIsAnError() throws IOException {
+        writeTen();
+        Files.delete(segment(1));
+        assertThrows(UncheckedIOException.class, this::reopen);
+        // The failed open must not keep the directory locked
+        Files.delete(segment(2));
+        try (TransactionJournal journal = reopen()) {
+            assertEquals(4, journal.getLastSeq());
+        }
+    }
+}